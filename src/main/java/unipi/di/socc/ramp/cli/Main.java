@@ -1,6 +1,8 @@
 package unipi.di.socc.ramp.cli;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import unipi.di.socc.ramp.cli.parser.Parser;
 import unipi.di.socc.ramp.core.analyzer.Analyzer;
@@ -12,6 +14,35 @@ public class Main {
 
     public static void main(String[] args) {
 
+        //analysis options can be given after the other arguments
+        boolean partialOrderReduction = false;
+        boolean backtracking = false;
+        boolean symmetryReduction = false;
+        boolean exhaustiveChoices = false;
+        int parallelism = 1;
+        List<String> positionalArgs = new ArrayList<>();
+        for(String arg : args){
+            if(arg.equals("--por"))
+                partialOrderReduction = true;
+            else if(arg.equals("--backtracking"))
+                backtracking = true;
+            else if(arg.equals("--symmetry"))
+                symmetryReduction = true;
+            else if(arg.equals("--exhaustive"))
+                exhaustiveChoices = true;
+            else if(arg.startsWith("--parallelism=")){
+                try {
+                    parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+                } catch (NumberFormatException e) {
+                    help("invalid parallelism: " + arg);
+                    return;
+                }
+            }
+            else
+                positionalArgs.add(arg);
+        }
+        args = positionalArgs.toArray(new String[0]);
+
         if(args.length == 0) {
             help();
             return;
@@ -72,6 +103,16 @@ public class Main {
         }
          
         Analyzer analyzer = new Analyzer();
+        analyzer.setPartialOrderReduction(partialOrderReduction);
+        analyzer.setBacktracking(backtracking);
+        analyzer.setSymmetryReduction(symmetryReduction);
+        analyzer.setExhaustiveChoices(exhaustiveChoices);
+        try {
+            analyzer.setParallelism(parallelism);
+        } catch (IllegalArgumentException e) {
+            help("invalid parallelism: " + parallelism);
+            return;
+        }
 
         //we start the analysis
         if(sequence != null){
@@ -116,11 +157,17 @@ public class Main {
             "[global-state.json] " + 
             "plan-or-sequence.json " + 
             "<type> " + 
-            "<property>"
+            "<property> " + 
+            "[<options>]"
         );
 
         System.out.println("\t <type> : --plan, --sequence");
         System.out.println("\t <property> : --valid, --weakly-valid");
+        System.out.println("\t <options> : --por (partial order reduction of plans)");
+        System.out.println("\t             --backtracking (undo changes instead of cloning the application)");
+        System.out.println("\t             --symmetry (explore once global states only differing for the names of unreferred instances, with --exhaustive)");
+        System.out.println("\t             --exhaustive (explore all the instances pi can bind and all the fault handling states)");
+        System.out.println("\t             --parallelism=<n> (number of workers analysing plans)");
 
         System.out.print("\n\n");
     }
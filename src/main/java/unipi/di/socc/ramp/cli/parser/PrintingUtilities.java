@@ -1,6 +1,5 @@
 package unipi.di.socc.ramp.cli.parser;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import unipi.di.socc.ramp.cli.parser.wrappers.*;
@@ -249,7 +248,7 @@ public class PrintingUtilities {
         System.out.println("RUNTIME BINDINGS");
 
         for (NodeInstance instance : gs.getActiveInstances().values()) {
-            List<RuntimeBinding> runtimeBindings = (ArrayList<RuntimeBinding>) gs.getRuntimeBindings().get(instance.getID());
+            List<RuntimeBinding> runtimeBindings = gs.getRuntimeBindings().get(instance.getID());
 
             System.out.println(instance.getID());
             if (runtimeBindings.size() == 0)
@@ -1,30 +1,141 @@
 package unipi.di.socc.ramp.core.analyzer;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import unipi.di.socc.ramp.cli.parser.PrintingUtilities;
 import unipi.di.socc.ramp.core.analyzer.actions.Action;
+import unipi.di.socc.ramp.core.analyzer.actions.OpEnd;
 import unipi.di.socc.ramp.core.analyzer.exceptions.UnsupportedAnalysisException;
 import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.Chooser;
+import unipi.di.socc.ramp.core.model.EncodedGlobalState;
+import unipi.di.socc.ramp.core.model.ExecutionOutcome;
 import unipi.di.socc.ramp.core.model.Fault;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.GlobalStateEncoder;
 import unipi.di.socc.ramp.core.model.NodeInstance;
+import unipi.di.socc.ramp.core.model.PiVersion;
 
-import unipi.di.socc.ramp.core.model.exceptions.FailedOperationException;
+import unipi.di.socc.ramp.core.model.exceptions.RuleNotApplicableException;
 
 public class Analyzer {
+
+    //plan analysis splits among workers only the subtrees with more remaining actions than this
+    private static final int SEQUENTIAL_THRESHOLD = 4;
     
     private AnalysisReport report;
 
+    //position of the first remaining action of the analysed sequence -> (encoded) global state -> whether the 
+    //remaining actions are valid when starting from such global state (different fault branches often converge)
+    private final Map<Integer, Map<EncodedGlobalState, Boolean>> exploredStates;
+    //position of the first remaining action of the analysed sequence -> (encoded) global state -> last fault 
+    //resolved in canonical order when finding the remaining actions valid from such global state (as only the 
+    //faults after it were resolved, see FaultsExploration)
+    private final Map<Integer, Map<EncodedGlobalState, Fault>> exploredCanonicalStates;
+    //remaining actions of a plan (as bits, see actionBits) -> (encoded) global states reached by a trace fragment 
+    //-> verdict of the traces going on from such global states (different trace fragments often converge)
+    private final Map<BitSet, Map<Set<EncodedGlobalState>, Boolean>> exploredPlanStates;
+    //encoder of the global states explored by the current analysis
+    private GlobalStateEncoder encoder;
+    //action of the plan under analysis -> its bit (equal actions in a plan get different bits)
+    private Map<Action, Integer> actionBits;
+
+    //if set, plan analysis checks only one trace among those differing for the order of independent actions
+    private boolean partialOrderReduction;
+    private IndependenceRelation independence;
+
+    //if set, branches are explored on a single global state whose changes are undone after each branch
+    //(instead of on a clone of the application for each branch)
+    private boolean backtracking;
+
+    //if set, global states only differing for the names of the instances not referred by the analysed actions
+    //(e.g., interchangeable replicas of a node) are explored once, provided that all the choices are explored 
+    //(pi versions choose depending on the names of the instances, e.g., greedy pi binds the least id)
+    private boolean symmetryReduction;
+    //ids of the instances referred by the analysed actions
+    private Set<String> fixedInstances;
+
+    //if set, the nondeterministic choices of the rules (which instance pi binds, which state handles a fault) 
+    //are all explored, rather than making them as given by the pi version of the application
+    private boolean exhaustiveChoices;
+
+    //number of workers exploring the traces of a plan (1 means sequential exploration)
+    private int parallelism;
+    //set as soon as a trace decides the plan analysis, to stop the other workers
+    private final AtomicBoolean verdictFound;
+
 
     public Analyzer(){
         this.report = new AnalysisReport();
+        this.exploredStates = new ConcurrentHashMap<>();
+        this.exploredCanonicalStates = new ConcurrentHashMap<>();
+        this.exploredPlanStates = new ConcurrentHashMap<>();
+        this.encoder = new GlobalStateEncoder();
+        this.actionBits = new IdentityHashMap<>();
+        this.partialOrderReduction = false;
+        this.backtracking = false;
+        this.symmetryReduction = false;
+        this.exhaustiveChoices = false;
+        this.fixedInstances = new HashSet<>();
+        this.parallelism = 1;
+        this.verdictFound = new AtomicBoolean(false);
     }
 
     public AnalysisReport getReport(){
         return report;
     }
 
+    public boolean isPartialOrderReduction() {
+        return partialOrderReduction;
+    }
+    public void setPartialOrderReduction(boolean partialOrderReduction) {
+        this.partialOrderReduction = partialOrderReduction;
+    }
+    public boolean isBacktracking() {
+        return backtracking;
+    }
+    public void setBacktracking(boolean backtracking) {
+        this.backtracking = backtracking;
+    }
+    public boolean isSymmetryReduction() {
+        return symmetryReduction;
+    }
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        this.symmetryReduction = symmetryReduction;
+    }
+    public boolean isExhaustiveChoices() {
+        return exhaustiveChoices;
+    }
+    public void setExhaustiveChoices(boolean exhaustiveChoices) {
+        this.exhaustiveChoices = exhaustiveChoices;
+    }
+    public int getParallelism() {
+        return parallelism;
+    }
+    public void setParallelism(int parallelism) throws IllegalArgumentException {
+        if(parallelism < 1)
+            throw new IllegalArgumentException();
+        this.parallelism = parallelism;
+    }
+
 
 
     //#region utilities
@@ -39,162 +150,641 @@ public class Analyzer {
         return cloneList;
     }
 
+    //ids of the instances referred by the given actions
+    private Set<String> getReferredInstances(List<Action> actions){
+        Set<String> referredInstances = new HashSet<>();
+        for(Action action : actions)
+            referredInstances.addAll(IndependenceRelation.getTouchedInstances(action));
+        
+        return referredInstances;
+    }
+
+    //encoding of the global state of app, canonical up to renaming the instances not referred by the 
+    //analysed actions if symmetry reduction is enabled (and sound, as all the choices are explored, 
+    //whose successors are then the same up to renaming)
+    private EncodedGlobalState encode(Application app){
+        if(this.symmetryReduction && this.exhaustiveChoices)
+            return app.getGlobalState().encodeCanonical(this.encoder, this.fixedInstances);
+        return app.getGlobalState().encode(this.encoder);
+    }
+
     //#endregion
 
 
     //########################### OFFERED METHODS ###########################
     public boolean sequenceAnalysis(Application app, Sequence sequence, String property) throws UnsupportedAnalysisException {
+        this.exploredStates.clear();
+        this.exploredCanonicalStates.clear();
+        this.encoder = new GlobalStateEncoder();
+        this.fixedInstances = this.getReferredInstances(sequence.getActions());
         // Case: valid sequence analysis
         if(property.equals("--valid")){
             //saves the sequence
             this.report.setFailedSequence(new Sequence(this.cloneList(sequence.getActions())));
-            return isValidSequence(app, sequence);
+            return checkSequence(app, sequence, this.report);
         }
         // Default: unsupported analysis
         throw new UnsupportedAnalysisException();
     }
 
     public boolean planAnalysis(Application app, Plan plan, String property) throws UnsupportedAnalysisException {
+        this.exploredStates.clear();
+        this.exploredPlanStates.clear();
+        this.encoder = new GlobalStateEncoder();
+        this.fixedInstances = this.getReferredInstances(plan.getActions());
+        this.actionBits = new IdentityHashMap<>();
+        for(Action action : plan.getActions())
+            this.actionBits.put(action, this.actionBits.size());
+        this.independence = this.partialOrderReduction ? new IndependenceRelation(app, plan) : null;
+        this.verdictFound.set(false);
         Sequence actions = new Sequence(plan.getActions());
         // Case: weakly valid plan analysis
         if(property.equalsIgnoreCase("--weakly-valid"))
-            return isValidPlan(app,plan,new Sequence(),actions.clone(),true);
+            return explorePlan(app,plan,actions.clone(),true);
         // Case: valid plan analysis
         if(property.equalsIgnoreCase("--valid"))
-            return isValidPlan(app,plan,new Sequence(),actions.clone(),false);
+            return explorePlan(app,plan,actions.clone(),false);
         // Default: unsupported analysis
         throw new UnsupportedAnalysisException();
     }
+
+    private boolean explorePlan(Application app, Plan plan, Sequence actions, boolean weakValidity) {
+        //the traces start from the global state of app (which is left untouched)
+        List<Application> states = Collections.singletonList(app);
+        if(this.parallelism == 1)
+            return isValidPlan(states,plan,new Sequence(),actions,new ArrayList<>(),weakValidity);
+
+        //the workers only read the global states reached by the trace fragments (and plan), 
+        //actions are executed on clones of them
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            return pool.invoke(ForkJoinTask.adapt(() -> isValidPlan(states,plan,new Sequence(),actions,new ArrayList<>(),weakValidity)));
+        } finally {
+            pool.shutdown();
+        }
+    }
     
 
     //#region SEQUENCE ANALYSIS
 
-    private boolean isValidSequence(Application app, Sequence sequence) {
+    //checks the actions of a sequence starting from the global state of app
+    private boolean isValidSequence(Application app, Sequence sequence, AnalysisReport report) {
+        //the sequence is walked by position on a view of its actions (which is not modified)
+        List<Action> actions = Collections.unmodifiableList(sequence.getActions());
+        return this.explore(new SequenceExploration(app, actions, 0, null, report));
+    }
 
-        //base case
-        if(sequence.getActions().isEmpty())
-            return true;
+    /**
+     * exploration of the remaining actions of a sequence (those from position on), starting from the 
+     * global state of app, where lastResolvedFault is the last of the faults resolved in canonical order 
+     * before retrying the first remaining action (null if none, see FaultsExploration)
+     */
+    private class SequenceExploration extends Exploration {
+
+        private final Application app;
+        private final List<Action> actions;
+        private final int position;
+        private final Fault lastResolvedFault;
+        private final AnalysisReport report;
+        //global state from which the remaining actions are explored (null until they are)
+        private EncodedGlobalState globalState;
+
+        public SequenceExploration(Application app, List<Action> actions, int position, Fault lastResolvedFault, AnalysisReport report) {
+            this.app = app;
+            this.actions = actions;
+            this.position = position;
+            this.lastResolvedFault = lastResolvedFault;
+            this.report = report;
+        }
+
+        @Override
+        protected Exploration step(boolean lastValid) {
+            //the remaining actions were explored
+            if(this.globalState != null){
+                this.valid = Analyzer.this.explored(this.position, this.globalState, this.lastResolvedFault, lastValid);
+                return null;
+            }
+
+            //base case
+            if(this.position == this.actions.size())
+                return null;
+
+            //the remaining actions were already explored starting from the very same global state
+            EncodedGlobalState globalState = Analyzer.this.encode(this.app);
+            Map<EncodedGlobalState, Boolean> exploredGlobalStates = Analyzer.this.exploredStates.get(this.position);
+            Boolean exploredVerdict = exploredGlobalStates != null ? exploredGlobalStates.get(globalState) : null;
+            if(exploredVerdict != null){
+                this.valid = exploredVerdict;
+                return null;
+            }
+            //(or they were found valid while resolving at least the faults to be resolved now, 
+            //otherwise only the faults not resolved then are to be explored)
+            Map<EncodedGlobalState, Fault> exploredResolvedFaults = Analyzer.this.exploredCanonicalStates.get(this.position);
+            Fault coveredResolvedFault = exploredResolvedFaults != null ? exploredResolvedFaults.get(globalState) : null;
+            if(coveredResolvedFault != null && this.lastResolvedFault != null && FAULT_ORDER.compare(coveredResolvedFault, this.lastResolvedFault) <= 0)
+                return null;
+            this.globalState = globalState;
+
+            // pop the first action of the remaining actions
+            Action action = this.actions.get(this.position);
+            //whether the action is a failed opEnd (set by each execution of the action, before checking its faults)
+            boolean[] faultedOpEnd = new boolean[1];
+
+            Predicate<Application> execution = branchApp -> {
+                Exception failException = Analyzer.this.execute(branchApp, action, faultedOpEnd);
+                if(failException == null)
+                    return true;
+                this.report.setFailedAction(action);
+                this.report.setFailException(failException);
+                if(this.report.getGlobalState() == null)
+                    this.report.setGlobalState(Analyzer.this.failedGlobalState(branchApp));
+                return false;
+            };
+            Consumer<Application> faultsInvalid = branchApp -> {
+                this.report.setFailedAction(action);
+                if(this.report.getGlobalState() == null)
+                    this.report.setGlobalState(Analyzer.this.failedGlobalState(branchApp));
+            };
+
+            return new ChoicesExploration(this.app, execution, branchApp -> {
+                //the branches of the faults go on with the remaining actions
+                //(a failed opEnd is consumed only if the fault is handled, it is retried otherwise)
+                boolean failedOpEnd = faultedOpEnd[0];
+                FaultBranchExplorer remainingActions = (faultBranchApp, consumed, lastResolvedFault) -> {
+                    int nextPosition = failedOpEnd && !consumed ? this.position : this.position + 1;
+                    return new SequenceExploration(faultBranchApp, this.actions, nextPosition, lastResolvedFault, this.report);
+                };
+                //the faults of a failed opEnd are resolved in a canonical order, if resolutions commute
+                String retriedInstanceID = failedOpEnd && Analyzer.this.commutingResolutions(branchApp) ? ((OpEnd) action).getInstanceID() : null;
+                return new FaultsExploration(branchApp, failedOpEnd, retriedInstanceID, this.lastResolvedFault, coveredResolvedFault, this.report, remainingActions, faultsInvalid);
+            });
+        }
+    }
+
+    /**
+     * records the verdict about the remaining actions (from position on) starting from the given global state, 
+     * where a positive verdict is about all the traces only if no fault was resolved in canonical order before
+     */
+    private boolean explored(int position, EncodedGlobalState globalState, Fault lastResolvedFault, boolean valid) {
+        if(valid && lastResolvedFault != null)
+            this.exploredCanonicalStates.computeIfAbsent(position, k -> new ConcurrentHashMap<>()).put(globalState, lastResolvedFault);
+        else
+            this.exploredStates.computeIfAbsent(position, k -> new ConcurrentHashMap<>()).put(globalState, valid);
+        return valid;
+    }
 
-        // pop the first action of the sequential plan
-        Action action = sequence.getActions().get(0);
-        boolean faultedOpEnd = false;
+    //whether resolving different faults of app commutes, that is, pi binds the first of the capable 
+    //instances (whatever the other runtime bindings are) and no choice is explored
+    private boolean commutingResolutions(Application app) {
+        return !this.exhaustiveChoices && app.getPiStrategy() == null && app.getPiVersion() == PiVersion.GREEDYPI;
+    }
 
+    //canonical order of the faults, in which commuting faults are resolved (as it depends on the names of 
+    //the instances, it is never used together with symmetry reduction, which needs all choices explored)
+    private static final Comparator<Fault> FAULT_ORDER = Comparator
+        .comparing(Fault::getNodeInstanceID)
+        .thenComparing(fault -> fault.getReq().getName());
 
-        try {
-            app.execute(action);
-            sequence.getActions().remove(0);
-        } catch (FailedOperationException e) {
-            faultedOpEnd = true;
-            //go on, this will be a fault
-        } catch (Exception e) {
-            this.report.setFailedAction(action);
-            this.report.setFailException(e);
-            this.report.setGlobalState(app.getGlobalState());
-            return false;
+    //exploration of a branch of the faults, given its application, whether the executed action is consumed 
+    //(or is to be retried), and the last fault resolved in canonical order (see FaultsExploration)
+    private interface FaultBranchExplorer {
+        public Exploration explore(Application branchApp, boolean consumed, Fault lastResolvedFault);
+    }
+
+    /**
+     * exploration of the branches of the faults of app, just after executing an action on it, where explorer 
+     * gives the exploration of each branch, and onInvalid is given app if some branch is not valid
+     * if the action is an opEnd of retriedInstanceID failed because of its faults (null if not, or if resolutions 
+     * do not commute), the resolvable faults of the other instances are resolved in canonical order (FAULT_ORDER)
+        * resolving such faults neither changes the other faults nor makes the opEnd not fail, hence resolving 
+          the same faults in different orders reaches the same global states (each explored once)
+        * while retrying the opEnd, only the faults after lastResolvedFault (the last one resolved, null if none) 
+          are resolved, whilst those before are resolved in other branches
+        * if the same global state was found valid after resolving coveredResolvedFault (null if not), only the 
+          faults up to it are still to be resolved, as the other branches do not depend on the canonical order
+     */
+    private class FaultsExploration extends Exploration {
+
+        private final Application app;
+        private final boolean faultedOpEnd;
+        private final String retriedInstanceID;
+        private final AnalysisReport report;
+        private final FaultBranchExplorer explorer;
+        private final Consumer<Application> onInvalid;
+        private Fault lastResolvedFault;
+        private final Fault coveredResolvedFault;
+        //pending faults of app just after the execution of the action (null until listed)
+        private List<Fault> pendingFaults;
+        //next branch to explore (-1 for the branch not handling any fault, i for the i-th pending fault)
+        private int nextBranch;
+        private int mark;
+        //whether the only branch is explored on app itself (see step)
+        private boolean inPlace;
+
+        public FaultsExploration(Application app, boolean faultedOpEnd, String retriedInstanceID, Fault lastResolvedFault, Fault coveredResolvedFault, AnalysisReport report, FaultBranchExplorer explorer, Consumer<Application> onInvalid) {
+            this.app = app;
+            this.faultedOpEnd = faultedOpEnd;
+            this.retriedInstanceID = retriedInstanceID;
+            this.lastResolvedFault = lastResolvedFault;
+            this.coveredResolvedFault = coveredResolvedFault;
+            this.report = report;
+            this.explorer = explorer;
+            this.onInvalid = onInvalid;
         }
 
+        @Override
+        protected Exploration step(boolean lastValid) {
+            if(this.pendingFaults == null){
+                //broken instance and pending faults of app just after the execution of action
+                //(the pending faults are listed only if any, as most global states have none)
+                NodeInstance brokenInstance;
+                try {
+                    brokenInstance = this.app.getGlobalState().getBrokenInstance();
+                    this.pendingFaults = this.app.getGlobalState().hasPendingFaults() ? this.app.getGlobalState().getPendingFaults() : Collections.emptyList();
+                } catch (Exception e) {
+                    return this.invalid();
+                }
+
+                //application of no-broken-instances
+                if(brokenInstance != null){
+                    try {
+                        //this will kill all the broken instances
+                        this.app.scaleIn(brokenInstance.getID());
+                    } catch (Exception e) {
+                        return this.invalid();
+                    }
+                }
+
+                //the canonical order goes on only if the opEnd failed again without other changes 
+                //(that is, after only resolving faults that commute with the others)
+                if(this.retriedInstanceID == null || brokenInstance != null)
+                    this.lastResolvedFault = null;
 
+                //(choices made by the pi version are not explored, unless all of them are)
+                if(!this.app.isPiDeterministic() && !Analyzer.this.exhaustiveChoices)
+                    return null;
 
-        //check the branches of the faults
-        if(!checkFaultsValid(app, sequence, faultedOpEnd)){
-            this.report.setFailedAction(action);
-            this.report.setGlobalState(app.getGlobalState());
-            return false;
+                //branching: we keep exploring not handling a single fault (if the action did not fail)
+                this.nextBranch = this.faultedOpEnd ? 0 : -1;
+
+                //if there are no faults, such branch is the only one, hence it goes on in app itself 
+                //(which is forked only where faults are to be handled)
+                if(this.nextBranch == -1 && this.pendingFaults.isEmpty()){
+                    this.inPlace = true;
+                    this.nextBranch = 0;
+                    return this.explorer.explore(this.app, true, null);
+                }
+            }else{
+                if(!this.inPlace)
+                    Analyzer.this.rollback(this.app, this.mark);
+                if(!lastValid)
+                    return this.invalid();
+            }
+
+            //branching: for each fault we fix it and starts exploring 
+            //(except for the faults to be resolved before the last resolved one, in canonical order, 
+            //and for the branches already covered)
+            Fault pendingFault = null;
+            boolean canonical = false;
+            while(pendingFault == null && this.nextBranch < this.pendingFaults.size()){
+                int branch = this.nextBranch++;
+                if(branch == -1){
+                    if(this.coveredResolvedFault != null)
+                        continue;
+                    this.mark = Analyzer.this.mark(this.app);
+                    return this.explorer.explore(Analyzer.this.branch(this.app), true, null);
+                }
+                pendingFault = this.pendingFaults.get(branch);
+                canonical = this.isCanonical(pendingFault);
+                if(canonical ? !this.isAfterLastResolved(pendingFault) || this.isAfterCovered(pendingFault) : this.coveredResolvedFault != null)
+                    pendingFault = null;
+            }
+            if(pendingFault == null)
+                return null;
+
+            //the other faults are resolved (or handled) in any order
+            Fault branchResolvedFault = canonical ? pendingFault : null;
+            this.mark = Analyzer.this.mark(this.app);
+            return Analyzer.this.faultBranch(Analyzer.this.branch(this.app), this.faultedOpEnd, pendingFault, branchResolvedFault, this.report, this.explorer);
         }
 
-        return true;
-    }
-    private boolean checkFaultsValid(Application app, Sequence sequence, boolean faultedOpEnd) {
-        //list of broken instances and pending faults of app just after the execution of action
-        List<NodeInstance> brokenInstances;
-        List<Fault> pendingFaults;
-        try {
-            brokenInstances = app.getGlobalState().getBrokenInstances();
-            pendingFaults = app.getGlobalState().getPendingFaults();
-        } catch (Exception e) {
-            return false;
+        private boolean isAfterLastResolved(Fault pendingFault) {
+            return this.lastResolvedFault == null || FAULT_ORDER.compare(pendingFault, this.lastResolvedFault) > 0;
         }
 
+        private boolean isAfterCovered(Fault pendingFault) {
+            return this.coveredResolvedFault != null && FAULT_ORDER.compare(pendingFault, this.coveredResolvedFault) > 0;
+        }
 
-        //application of no-broken-instances
-        if(!brokenInstances.isEmpty()){
+        //whether pendingFault is resolved in canonical order (see FaultsExploration)
+        private boolean isCanonical(Fault pendingFault) {
+            if(this.retriedInstanceID == null || pendingFault.getNodeInstanceID().equals(this.retriedInstanceID))
+                return false;
             try {
-                //this will kill all the broken instances
-                app.scaleIn(brokenInstances.get(0).getID());
+                return this.app.getGlobalState().isResolvableFault(pendingFault);
             } catch (Exception e) {
                 return false;
             }
         }
 
-        if(app.isPiDeterministic()){
+        private Exploration invalid() {
+            this.onInvalid.accept(this.app);
+            this.valid = false;
+            return null;
+        }
+    }
 
-            //branching: we keep exploring not handling a single fault
-            if(!faultedOpEnd && !this.isValidSequence(app.clone(), sequence))
-                return false;
+    //exploration of the branch handling (or resolving) pendingFault in app, where lastResolvedFault is the last 
+    //fault resolved in canonical order when retrying a failed opEnd
+    private Exploration faultBranch(Application app, boolean faultedOpEnd, Fault pendingFault, Fault lastResolvedFault, AnalysisReport report, FaultBranchExplorer explorer) {
+        boolean isResolvableFault;
+        try {
+            isResolvableFault = app.getGlobalState().isResolvableFault(pendingFault);
+        } catch (Exception e) {
+            report.faultedGS = this.failedGlobalState(app);
+            return new CompletedExploration(false);
+        }
 
-            //branching: for each fault we fix it and starts exploring
-            if(!pendingFaults.isEmpty()){
-                for(Fault pendingFault : pendingFaults){
+        if(isResolvableFault){
+            Predicate<Application> resolution = branchApp -> {
+                try {
+                    //fix the fault by creating a new runtime binding that safisfy it
+                    branchApp.resolveFault(pendingFault);
+                } catch (Exception e) {
+                    return false;
+                }
+                return true;
+            };
+            //a failed opEnd is retried
+            return new ChoicesExploration(app, resolution, branchApp -> explorer.explore(branchApp, !faultedOpEnd, faultedOpEnd ? lastResolvedFault : null));
+        }else{
+            Predicate<Application> handling = branchApp -> {
+                try {
+                    //handle the fault by applying the fault handler
+                    branchApp.handleFault(pendingFault);
+                } catch (Exception e) {
+                    return false;
+                }
+                return true;
+            };
+            return new ChoicesExploration(app, handling, branchApp -> explorer.explore(branchApp, true, null));
+        }
+    }
 
-                    Application clonedApp = app.clone();
+    //#endregion
 
-                    boolean isResolvableFault;
-                    try {
-                        isResolvableFault = clonedApp.getGlobalState().isResolvableFault(pendingFault);
-                    } catch (Exception e) {
-                        this.report.faultedGS = clonedApp.getGlobalState();
-                        return false;
-                    }
+    //#region BRANCHING
 
-                    if(isResolvableFault){
-                        try {
-                            //fix the fault by creating a new runtime binding that safisfy it
-                            clonedApp.resolveFault(pendingFault);
-                            if(!this.isValidSequence(clonedApp, sequence))
-                                return false;
-
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    }else{
-                        try {
-                            //handle the fault by applying the fault handler
-                            clonedApp.handleFault(pendingFault);
-                            
-                            if(faultedOpEnd)
-                                sequence.getActions().remove(0);
-
-                            if(!this.isValidSequence(clonedApp, sequence))
-                                return false;
-
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    }
+    /**
+     * executes action on app, setting faultedOpEnd[0] to whether action is a failed opEnd (which will be a fault)
+     * @return null if action was executed (or it is a failed opEnd), the exception raised by the model otherwise
+     */
+    private Exception execute(Application app, Action action, boolean[] faultedOpEnd){
+        ExecutionOutcome outcome;
+        try {
+            outcome = app.tryExecute(action);
+        } catch (Exception e) {
+            //failure while applying the rule
+            return e;
+        }
+        faultedOpEnd[0] = outcome == ExecutionOutcome.FAULTED;
+        if(outcome == ExecutionOutcome.APPLIED || outcome == ExecutionOutcome.FAULTED)
+            return null;
+
+        //the action could not be applied (leaving app unchanged), hence it is executed again to get the 
+        //exception reporting why, which is constructed only for the failing traces
+        try {
+            app.execute(action);
+        } catch (Exception e) {
+            return e;
+        }
+        return new RuleNotApplicableException();
+    }
+
+    /**
+     * exploration of the branches going on from a global state, which is done step by step (see explore), 
+     * so that the analysis of long sequences does not recur once per action
+     */
+    private abstract static class Exploration {
+
+        //verdict of the exploration, once completed
+        protected boolean valid = true;
+
+        /**
+         * @param lastValid verdict of the last exploration returned by this step (true if none)
+         * @return the exploration to be completed before this one goes on (null if this one is completed)
+         */
+        protected abstract Exploration step(boolean lastValid);
+    }
+
+    //exploration completed with the given verdict
+    private static class CompletedExploration extends Exploration {
+
+        public CompletedExploration(boolean valid) {
+            this.valid = valid;
+        }
+
+        @Override
+        protected Exploration step(boolean lastValid) {
+            return null;
+        }
+    }
+
+    //completes an exploration (and the explorations it waits for) on an explicit stack, returning its verdict
+    private boolean explore(Exploration exploration) {
+        Deque<Exploration> explorations = new ArrayDeque<>();
+        explorations.push(exploration);
+        boolean lastValid = true;
+        while(!explorations.isEmpty()){
+            Exploration next = explorations.peek().step(lastValid);
+            if(next != null){
+                explorations.push(next);
+                lastValid = true;
+            }else
+                lastValid = explorations.pop().valid;
+        }
+        return lastValid;
+    }
+
+    /**
+     * exploration applying a rule of the model to app (by rule, false if failing), and exploring the global 
+     * state it reaches (by explorer)
+        * if choices are explored, this is done on a branch of app for each combination of the choices made 
+          by the rule, until one fails
+        * otherwise, this is done once on app itself
+     */
+    private class ChoicesExploration extends Exploration {
+
+        private final Application app;
+        private final Predicate<Application> rule;
+        private final Function<Application, Exploration> explorer;
+        //choices made by the rule (null if choices are not explored)
+        private final ChoiceScript script;
+        //whether the global state reached by the rule is being explored
+        private boolean exploring;
+        private int mark;
+
+        public ChoicesExploration(Application app, Predicate<Application> rule, Function<Application, Exploration> explorer) {
+            this.app = app;
+            this.rule = rule;
+            this.explorer = explorer;
+            this.script = Analyzer.this.exhaustiveChoices ? new ChoiceScript() : null;
+        }
+
+        @Override
+        protected Exploration step(boolean lastValid) {
+            if(this.exploring){
+                this.exploring = false;
+                if(this.script != null)
+                    Analyzer.this.rollback(this.app, this.mark);
+                if(!lastValid || this.script == null || !this.script.next()){
+                    this.valid = lastValid;
+                    return null;
+                }
+            }
+
+            if(this.script == null){
+                if(!this.rule.test(this.app)){
+                    this.valid = false;
+                    return null;
                 }
+                this.exploring = true;
+                return this.explorer.apply(this.app);
             }
+
+            this.mark = Analyzer.this.mark(this.app);
+            Application branchApp = Analyzer.this.branch(this.app);
+            //(only the choices of the rule are scripted, those of the explored branches are made by their own scripts)
+            branchApp.setChooser(this.script);
+            boolean applied = this.rule.test(branchApp);
+            branchApp.setChooser(null);
+            if(!applied){
+                Analyzer.this.rollback(this.app, this.mark);
+                this.valid = false;
+                return null;
+            }
+            this.exploring = true;
+            return this.explorer.apply(branchApp);
         }
-        return true;
     }
 
+    /**
+     * chooser making the choices of a rule as scripted, where the choices made after the end of the script 
+     * take the first alternative (and are added to the script), so that the rule can be applied again with 
+     * the next combination of choices
+     */
+    private static class ChoiceScript implements Chooser {
+
+        //chosen alternative and number of alternatives of each choice in the script
+        private final List<int[]> choices = new ArrayList<>();
+        //number of choices made in the current application of the rule
+        private int made = 0;
+
+        @Override
+        public int choose(int alternatives){
+            if(this.made == this.choices.size())
+                this.choices.add(new int[]{ 0, alternatives });
+            return this.choices.get(this.made++)[0];
+        }
+
+        //scripts the next combination of choices (the last choice having alternatives left takes the next one, 
+        //and the following choices are dropped), returning false if all the combinations were made
+        public boolean next(){
+            this.made = 0;
+            while(!this.choices.isEmpty()){
+                int[] lastChoice = this.choices.get(this.choices.size() - 1);
+                if(++lastChoice[0] < lastChoice[1])
+                    return true;
+                this.choices.remove(this.choices.size() - 1);
+            }
+            return false;
+        }
+    }
+
+    //application on which a branch is explored: a clone of app, or app itself in backtracking mode
+    private Application branch(Application app) {
+        return this.backtracking ? app : app.clone();
+    }
+    private int mark(Application app) {
+        return this.backtracking ? app.getGlobalState().mark() : 0;
+    }
+    //in backtracking mode, undoes the changes made by a branch
+    private void rollback(Application app, int mark) {
+        if(this.backtracking)
+            app.getGlobalState().rollback(mark);
+    }
+    //global state to report, copied in backtracking mode as it is going to be rolled back
+    private GlobalState failedGlobalState(Application app) {
+        return this.backtracking ? app.getGlobalState().clone(app) : app.getGlobalState();
+    }
+
+    //checks a sequence starting from the current global state of app (which is restored in backtracking mode)
+    private boolean checkSequence(Application app, Sequence sequence, AnalysisReport report) {
+        if(!this.backtracking)
+            return isValidSequence(app, sequence, report);
+
+        app.getGlobalState().startTrail();
+        int mark = app.getGlobalState().mark();
+        try {
+            return isValidSequence(app, sequence, report);
+        } finally {
+            app.getGlobalState().rollback(mark);
+            app.getGlobalState().stopTrail();
+        }
+    }
+
+    //#endregion
 
     //#region PLAN ANALYSIS
     
-    private boolean isValidPlan(Application app, Plan plan, Sequence traceFragment, Sequence remainingActions, boolean weakValidity) {
-        // If there are no remainingActions, check the validity of the trace denoted by traceFragment
-        if(remainingActions.getActions().isEmpty()) {
-            boolean validTrace = isValidSequence(app.clone(), traceFragment.clone());
+    /**
+     * states contains the distinct global states reached by executing traceFragment (one for each combination 
+     * of handled faults), from which the traces starting with traceFragment go on
+     * sleepSet contains the actions that need not be appended to traceFragment, as the resulting traces only 
+     * differ for the order of independent actions from traces that were already checked (always empty if 
+     * partial order reduction is not enabled)
+     */
+    boolean isValidPlan(List<Application> states, Plan plan, Sequence traceFragment, Sequence remainingActions, List<Action> sleepSet, boolean weakValidity) {
+        // If another worker already decided the analysis, stop (returning the verdict)
+        if(this.verdictFound.get())
+            return weakValidity;
+
+        // If there are no remainingActions (or no global state to go on from), the traces denoted by 
+        // traceFragment are valid
+        if(remainingActions.getActions().isEmpty() || states.isEmpty()) {
             // Case: Weakly valid plan analysis (found valid trace, return true)
-            if(validTrace && weakValidity)
-                return true;
-            // Case: Valid plan analysis (violation to validity constraints, return false)
-            if(!validTrace && !weakValidity) {
-                this.report.setFailedSequence(traceFragment.clone());
-                return false;
-            }
+            if(weakValidity)
+                this.verdictFound.set(true);
+            return true;
         }
-        
-        // Otherwise, expand traceFragment with any of the remainingActions (if possible) and recur
+
+        // If the traces going on from the very same global states with the same remainingActions were already
+        // explored, return their verdict
+        BitSet remainingBits = new BitSet(this.actionBits.size());
+        for(Action remaining : remainingActions.getActions())
+            remainingBits.set(this.actionBits.get(remaining));
+        Set<EncodedGlobalState> globalStates = new HashSet<>();
+        for(Application state : states)
+            globalStates.add(this.encode(state));
+        Map<Set<EncodedGlobalState>, Boolean> exploredGlobalStates = this.exploredPlanStates.get(remainingBits);
+        Boolean exploredVerdict = exploredGlobalStates != null ? exploredGlobalStates.get(globalStates) : null;
+        if(exploredVerdict != null)
+            return exploredVerdict;
+
+        boolean validPlan = expandTraceFragment(states,plan,traceFragment,remainingActions,sleepSet,weakValidity);
+        // Only the verdicts not deciding the analysis are recorded, as the others stop it (and the verdicts 
+        // of the subtrees cut by stopping are not reliable)
+        if(!this.verdictFound.get())
+            this.exploredPlanStates.computeIfAbsent(remainingBits, k -> new ConcurrentHashMap<>()).put(globalStates, validPlan);
+        return validPlan;
+    }
+
+    private boolean expandTraceFragment(List<Application> states, Plan plan, Sequence traceFragment, Sequence remainingActions, List<Action> sleepSet, boolean weakValidity) {
+        // Expand traceFragment with any of the remainingActions (if possible) and recur
+        // (when run by a worker, big enough subtrees are forked to be explored by the other workers)
+        boolean forking = ForkJoinTask.inForkJoinPool() && remainingActions.getActions().size() > SEQUENTIAL_THRESHOLD;
+        List<PlanExplorationTask> subtasks = new ArrayList<>();
+        List<Action> expandedActions = new ArrayList<>();
         for(int i=0; i<remainingActions.getActions().size(); i++) {
             // Extract action "a" to consider and compute "new" remainingActions
             Sequence newRemainingActions = remainingActions.clone();
@@ -207,12 +797,29 @@ public class Analyzer {
                     break;
                 }
             }
-            if(orderPreservingAction) {
+            if(orderPreservingAction && !sleepSet.contains(a)) {
                 // Concat "a" to "new" traceFragment
                 Sequence newTraceFragment = traceFragment.clone();
                 newTraceFragment.getActions().add(a);
+                // Actions independent from "a" keep sleeping after "a"
+                List<Action> newSleepSet = new ArrayList<>();
+                if(this.independence != null) {
+                    for(Action sleeping : sleepSet) {
+                        if(this.independence.areIndependent(a, sleeping))
+                            newSleepSet.add(sleeping);
+                    }
+                    for(Action expanded : expandedActions) {
+                        if(this.independence.areIndependent(a, expanded))
+                            newSleepSet.add(expanded);
+                    }
+                }
+                expandedActions.add(a);
+                if(forking) {
+                    subtasks.add(new PlanExplorationTask(this,states,plan,newTraceFragment,newRemainingActions,newSleepSet,weakValidity));
+                    continue;
+                }
                 // Recur with new traceFragment and new remainingActions
-                boolean validPlan = isValidPlan(app,plan,newTraceFragment,newRemainingActions,weakValidity);
+                boolean validPlan = isValidExpansion(states,plan,newTraceFragment,newRemainingActions,newSleepSet,weakValidity);
                 // Case: Weakly valid plan analysis (found valid trace, return true)
                 if(validPlan && weakValidity)
                     return true;
@@ -223,12 +830,114 @@ public class Analyzer {
             }
         }
 
+        // Join the forked subtrees
+        for(PlanExplorationTask subtask : ForkJoinTask.invokeAll(subtasks)) {
+            boolean validPlan = subtask.join();
+            if(validPlan && weakValidity)
+                return true;
+            if(!validPlan && !weakValidity)
+                return false;
+        }
+
         // Case: Weakly valid plan analysis (plan assumed to not be weakly valid)
         if(weakValidity) return false;
         // Case: Valid plan analysis (plan assumed to be valid)
         return true;
     }
 
+    /**
+     * checks the traces starting with traceFragment, whose last action is executed from the global states 
+     * reached by the rest of traceFragment (so that the common prefixes of traces are executed only once)
+     */
+    boolean isValidExpansion(List<Application> states, Plan plan, Sequence traceFragment, Sequence remainingActions, List<Action> sleepSet, boolean weakValidity) {
+        if(this.verdictFound.get())
+            return weakValidity;
+
+        // Each worker collects the failures of its traces on its own
+        AnalysisReport traceReport = ForkJoinTask.inForkJoinPool() ? new AnalysisReport() : this.report;
+        Action a = traceFragment.getActions().get(traceFragment.getActions().size() - 1);
+        List<Application> newStates = this.executeFrom(states, a, traceReport);
+        // Case: all the traces starting with traceFragment are not valid
+        if(newStates == null) {
+            this.reportFailedTrace(traceReport, traceFragment, weakValidity);
+            if(!weakValidity)
+                this.verdictFound.set(true);
+            return false;
+        }
+        return isValidPlan(newStates, plan, traceFragment, remainingActions, sleepSet, weakValidity);
+    }
+
+    /**
+     * executes action from each of the given global states (without changing them) and explores the branches 
+     * of the faults, as in sequence analysis
+     * @return the distinct global states reached by executing action, null if the execution fails in some branch
+     */
+    private List<Application> executeFrom(List<Application> states, Action action, AnalysisReport report) {
+        //(encoded) global state reached by executing action -> application in such global state
+        Map<EncodedGlobalState, Application> reachedStates = new LinkedHashMap<>();
+        //global states from which action is still to be executed (a failed opEnd is retried after resolving
+        //a fault), each considered once
+        Deque<Application> startingStates = new ArrayDeque<>(states);
+        Set<EncodedGlobalState> startingGlobalStates = new HashSet<>();
+        for(Application state : states)
+            startingGlobalStates.add(this.encode(state));
+
+        FaultBranchExplorer collectState = (branchApp, consumed, lastResolvedFault) -> {
+            //in backtracking mode the branch is going to be rolled back
+            Application branchState = this.backtracking ? branchApp.clone() : branchApp;
+            EncodedGlobalState globalState = this.encode(branchState);
+            if(consumed)
+                reachedStates.putIfAbsent(globalState, branchState);
+            else if(startingGlobalStates.add(globalState))
+                startingStates.push(branchState);
+            return new CompletedExploration(true);
+        };
+
+        //whether the action is a failed opEnd (set by each execution of the action, before checking its faults)
+        boolean[] faultedOpEnd = new boolean[1];
+        Predicate<Application> execution = app -> {
+            Exception failException = this.execute(app, action, faultedOpEnd);
+            if(failException == null)
+                return true;
+            report.setFailedAction(action);
+            report.setFailException(failException);
+            report.setGlobalState(this.failedGlobalState(app));
+            return false;
+        };
+        Consumer<Application> faultsInvalid = app -> {
+            report.setFailedAction(action);
+            report.setGlobalState(this.failedGlobalState(app));
+        };
+
+        while(!startingStates.isEmpty()) {
+            Application app = startingStates.pop().clone();
+            if(this.backtracking)
+                app.getGlobalState().startTrail();
+
+            Exploration exploration = new ChoicesExploration(app, execution, branchApp -> 
+                new FaultsExploration(branchApp, faultedOpEnd[0], null, null, null, report, collectState, faultsInvalid)
+            );
+            if(!this.explore(exploration))
+                return null;
+        }
+        return new ArrayList<>(reachedStates.values());
+    }
+
+    /**
+     * keeps the report of the first failed trace (the only one if plans are explored sequentially), 
+     * where the failed trace is saved only in valid plan analysis
+     */
+    private synchronized void reportFailedTrace(AnalysisReport traceReport, Sequence trace, boolean weakValidity) {
+        if(traceReport != this.report) {
+            //the failure of the trace might have been already reported by another worker
+            if(this.report.getFailedAction() != null || traceReport.getFailedAction() == null)
+                return;
+            this.report = traceReport;
+        }
+        if(!weakValidity && this.report.getFailedSequence() == null)
+            this.report.setFailedSequence(trace);
+    }
+
     //#endregion
 
     public void printReport(){
@@ -0,0 +1,173 @@
+package unipi.di.socc.ramp.core.analyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import unipi.di.socc.ramp.core.analyzer.actions.*;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeCap;
+import unipi.di.socc.ramp.core.model.NodeReq;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+
+/**
+ * static approximation of the independence of the actions of a plan
+    * two actions are independent if they act on different instances and the nodes of the instances they
+    * can change are not bound in the static topology (e.g., two replicas of the same node)
+    * independent actions commute: executing them in any order leads to the same global state
+    * this holds only if pi binds regardless of the runtime bindings created before (greedy pi), otherwise 
+    * (e.g., least loaded or round robin pi, or a pi strategy) all the actions are dependent
+ */
+public class IndependenceRelation {
+
+    //node name -> names of the nodes bound to it by the static binding function (both ways)
+    private final Map<String, Set<String>> boundNodes;
+    //node name -> names of the nodes whose instances can be (transitively) contained in its instances
+    private final Map<String, Set<String>> containedNodes;
+    //instance id -> name of the node of the instance (null if ambiguous)
+    private final Map<String, String> instanceNodes;
+    //whether creating runtime bindings in different orders leads to the same runtime bindings
+    private final boolean commutingBindings;
+
+    //action -> ids of the instances the action acts on
+    private final Map<Action, List<String>> touchedInstances;
+    //action -> names of the nodes whose instances can be changed by the action (null if unknown)
+    private final Map<Action, Set<String>> touchedNodes;
+
+    /**
+     * @param app application on which the plan is to be executed
+     * @param plan plan whose actions are to be related
+     * @throws NullPointerException
+     */
+    public IndependenceRelation(Application app, Plan plan) throws NullPointerException {
+        if(app == null || plan == null)
+            throw new NullPointerException();
+
+        this.boundNodes = new HashMap<>();
+        this.containedNodes = new HashMap<>();
+        this.instanceNodes = new HashMap<>();
+        this.touchedInstances = new HashMap<>();
+        this.touchedNodes = new HashMap<>();
+        this.commutingBindings = app.getPiStrategy() == null && app.getPiVersion() == PiVersion.GREEDYPI;
+
+        //static topology
+        for(String nodeName : app.getNodes().keySet()){
+            this.boundNodes.put(nodeName, new HashSet<>());
+            this.containedNodes.put(nodeName, new HashSet<>());
+        }
+        for(NodeReq nodeReq : app.getBindingFunction().keySet()){
+            NodeCap nodeCap = app.getBindingFunction().get(nodeReq);
+            this.boundNodes.get(nodeReq.getNodeName()).add(nodeCap.getNodeName());
+            this.boundNodes.get(nodeCap.getNodeName()).add(nodeReq.getNodeName());
+
+            for(Requirement req : app.getNodes().get(nodeReq.getNodeName()).getReqs()){
+                if(req.isContainment() && req.getName().equals(nodeReq.getReqName()))
+                    this.containedNodes.get(nodeCap.getNodeName()).add(nodeReq.getNodeName());
+            }
+        }
+        //a container also contains what is contained in its contained instances
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            for(Set<String> contained : this.containedNodes.values()){
+                List<String> toAdd = new ArrayList<>();
+                for(String containedNode : contained)
+                    toAdd.addAll(this.containedNodes.get(containedNode));
+                if(contained.addAll(toAdd))
+                    changed = true;
+            }
+        }
+
+        //instances known before executing the plan, or created by the plan
+        for(String instanceID : app.getGlobalState().getActiveInstances().keySet())
+            this.addInstance(instanceID, app.getGlobalState().getActiveInstances().get(instanceID).getNodeTypeName());
+        for(Action action : plan.getActions()){
+            if(action instanceof ScaleOut)
+                this.addInstance(((ScaleOut) action).getIDToAssign(), ((ScaleOut) action).getNodeName());
+            if(action instanceof ScaleOutC)
+                this.addInstance(((ScaleOutC) action).getIDToAssign(), ((ScaleOutC) action).getNodeName());
+        }
+
+        //footprints of the actions
+        for(Action action : plan.getActions()){
+            this.touchedInstances.put(action, getTouchedInstances(action));
+            this.touchedNodes.put(action, this.getTouchedNodes(action));
+        }
+    }
+
+    //the same id might be given to instances of different nodes
+    private void addInstance(String instanceID, String nodeName){
+        if(this.instanceNodes.containsKey(instanceID) && !nodeName.equals(this.instanceNodes.get(instanceID)))
+            this.instanceNodes.put(instanceID, null);
+        else
+            this.instanceNodes.put(instanceID, nodeName);
+    }
+
+    //ids of the instances an action refers to
+    static List<String> getTouchedInstances(Action action){
+        List<String> instances = new ArrayList<>();
+        if(action instanceof OpStart)
+            instances.add(((OpStart) action).getInstanceID());
+        if(action instanceof OpEnd)
+            instances.add(((OpEnd) action).getInstanceID());
+        if(action instanceof ScaleIn)
+            instances.add(((ScaleIn) action).getInstanceID());
+        if(action instanceof ScaleOut)
+            instances.add(((ScaleOut) action).getIDToAssign());
+        if(action instanceof ScaleOutC){
+            instances.add(((ScaleOutC) action).getIDToAssign());
+            instances.add(((ScaleOutC) action).getContainerID());
+        }
+        return instances;
+    }
+
+    private Set<String> getTouchedNodes(Action action){
+        Set<String> nodes = new HashSet<>();
+        for(String instanceID : this.touchedInstances.get(action)){
+            String nodeName = this.instanceNodes.get(instanceID);
+            //unknown (or ambiguous) instance, the action is dependent on any other action
+            if(nodeName == null || !this.boundNodes.containsKey(nodeName))
+                return null;
+            nodes.add(nodeName);
+        }
+        //destroying an instance also destroys the instances it contains
+        if(action instanceof ScaleIn)
+            nodes.addAll(this.containedNodes.get(nodes.iterator().next()));
+
+        return nodes;
+    }
+
+    /**
+     * @param a an action of the plan
+     * @param b another action of the plan
+     * @return true if a and b can be executed in any order leading to the same global state
+     */
+    public boolean areIndependent(Action a, Action b){
+        List<String> aInstances = this.touchedInstances.get(a);
+        List<String> bInstances = this.touchedInstances.get(b);
+        Set<String> aNodes = this.touchedNodes.get(a);
+        Set<String> bNodes = this.touchedNodes.get(b);
+
+        if(!this.commutingBindings || aNodes == null || bNodes == null)
+            return false;
+
+        for(String instanceID : aInstances){
+            if(bInstances.contains(instanceID))
+                return false;
+        }
+
+        //instances of bound nodes can affect each other (e.g., requirements satisfied or not)
+        for(String aNode : aNodes){
+            for(String bNode : bNodes){
+                if(this.boundNodes.get(aNode).contains(bNode))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package unipi.di.socc.ramp.core.analyzer;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import unipi.di.socc.ramp.core.analyzer.actions.Action;
+import unipi.di.socc.ramp.core.model.Application;
+
+/**
+ * subtree of the traces of a plan (those starting with traceFragment), explored by a worker
+ * of the pool of the analyzer starting from the global states reached before the last action of traceFragment
+ */
+class PlanExplorationTask extends RecursiveTask<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Analyzer analyzer;
+    private final List<Application> states;
+    private final Plan plan;
+    private final Sequence traceFragment;
+    private final Sequence remainingActions;
+    private final List<Action> sleepSet;
+    private final boolean weakValidity;
+
+    PlanExplorationTask(
+        Analyzer analyzer, 
+        List<Application> states, 
+        Plan plan, 
+        Sequence traceFragment, 
+        Sequence remainingActions, 
+        List<Action> sleepSet, 
+        boolean weakValidity
+    ){
+        this.analyzer = analyzer;
+        this.states = states;
+        this.plan = plan;
+        this.traceFragment = traceFragment;
+        this.remainingActions = remainingActions;
+        this.sleepSet = sleepSet;
+        this.weakValidity = weakValidity;
+    }
+
+    @Override
+    protected Boolean compute() {
+        return this.analyzer.isValidExpansion(
+            this.states, 
+            this.plan, 
+            this.traceFragment, 
+            this.remainingActions, 
+            this.sleepSet, 
+            this.weakValidity
+        );
+    }
+}
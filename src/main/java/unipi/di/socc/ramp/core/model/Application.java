@@ -1,6 +1,8 @@
 package unipi.di.socc.ramp.core.model;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,7 +19,17 @@ public class Application{
     private GlobalState globalState;
 
     private Map<NodeReq, NodeCap> bindingFunction; 
+    //true if the nodes and the binding function are shared with copies of the application (or with the 
+    //application it is a copy of), hence they are to be copied before being changed
+    private transient boolean sharedSpec;
+    //tables of the static topology, built when first needed (null if not built yet)
+    private transient volatile CompiledTopology topology;
     private PiVersion piVersion;
+    //strategy plugged in place of the pi version (null if the pi version is used)
+    private PiStrategy piStrategy;
+    //maker of the nondeterministic choices of the rules, in place of pi and of the choice of the fault handling 
+    //state with most needed requirements (null if not used)
+    private transient Chooser chooser;
     private boolean deterministicPi;
 
     /**
@@ -63,6 +75,11 @@ public class Application{
         return deterministicPi;
     }
     public void setDeterministicPi() {
+        PiStrategy strategy = this.piStrategy != null ? this.piStrategy : this.piVersion.getStrategy();
+        if(strategy != null){
+            this.deterministicPi = strategy.isDeterministic();
+            return;
+        }
         switch (this.piVersion) {
             case GREEDYPI:
                 this.deterministicPi = true;
@@ -80,14 +97,58 @@ public class Application{
         if(piVersion == null)
             throw new NullPointerException();
         this.piVersion = piVersion;
+        this.setDeterministicPi();
+    }
+    public PiStrategy getPiStrategy() {
+        return piStrategy;
+    }
+    /**
+     * @param piStrategy strategy to use in place of the pi version (null to use the pi version again)
+     */
+    public void setPiStrategy(PiStrategy piStrategy) {
+        this.piStrategy = piStrategy;
+        this.setDeterministicPi();
     }
+    public Chooser getChooser() {
+        return chooser;
+    }
+    /**
+     * @param chooser maker of the choices of the rules (null to go back to pi and to the fault handling state 
+     *        with most needed requirements), which is not given to the copies of the application
+     */
+    public void setChooser(Chooser chooser) {
+        this.chooser = chooser;
+    }
+    /**
+     * @return the binding function (not to be modified, see addStaticBinding)
+     */
     public Map<NodeReq, NodeCap> getBindingFunction() {
-        return bindingFunction;
+        return Collections.unmodifiableMap(this.bindingFunction);
     }
     public void setBindingFunction(Map<NodeReq, NodeCap> bindingFunction) {
         if(bindingFunction == null)
             throw new NullPointerException();
+        if(this.sharedSpec)
+            this.copySpec();
         this.bindingFunction = bindingFunction;
+        this.topology = null;
+    }
+    /**
+     * @return the tables of the static topology of the application, to be built again if nodes or static 
+     *         bindings are added, or if management protocols are edited (the nodes are assumed not to change 
+     *         while executing the rules of the model)
+     */
+    public CompiledTopology getTopology(){
+        CompiledTopology topology = this.topology;
+        if(topology != null && topology.isUpToDate())
+            return topology;
+
+        //(built once, also if more threads find the tables out of date)
+        synchronized(this){
+            if(this.topology == null || !this.topology.isUpToDate())
+                this.topology = new CompiledTopology(this.nodes, this.bindingFunction);
+            return this.topology;
+        }
     }
     public GlobalState getGlobalState() {
         return globalState;
@@ -97,13 +158,19 @@ public class Application{
             throw new NullPointerException();
         this.globalState = globalState;
     }
+    /**
+     * @return the nodes of the application, by name (not to be modified, see addNode)
+     */
     public Map<String, Node> getNodes() {
-        return nodes;
+        return Collections.unmodifiableMap(this.nodes);
     }
     public void setNodes(Map<String, Node> nodes) {
         if(nodes == null)
             throw new NullPointerException();
+        if(this.sharedSpec)
+            this.copySpec();
         this.nodes = nodes;
+        this.topology = null;
     }
     public String getName() {
         return name;
@@ -120,6 +187,12 @@ public class Application{
         
         this.name = name;
     }
+    //stops sharing the nodes and the binding function with the copies of the application, by copying them
+    private void copySpec(){
+        this.nodes = new HashMap<>(this.nodes);
+        this.bindingFunction = new HashMap<>(this.bindingFunction);
+        this.sharedSpec = false;
+    }
     private int randomIndex(int min, int max) {
         return (int) ((Math.random() * (max - min)) + min);
     }
@@ -132,8 +205,11 @@ public class Application{
     {
         if(node == null)
             throw new NullPointerException();
+        if(this.sharedSpec)
+            this.copySpec();
         
         this.nodes.put(node.getName(), node);
+        this.topology = null;
     }
 
     public void addStaticBinding(NodeReq nodeReq, NodeCap nodeCap)
@@ -148,8 +224,11 @@ public class Application{
             throw new NodeUnknownException();
         if(!this.nodes.containsKey(nodeCap.getNodeName()))
         throw new NodeUnknownException();
+        if(this.sharedSpec)
+            this.copySpec();
 
         this.bindingFunction.put(nodeReq, nodeCap);
+        this.topology = null;
     }
 
     //############################## PI IMPLEMENTATIONS ############################
@@ -160,11 +239,30 @@ public class Application{
             IllegalArgumentException, 
             InstanceUnknownException
     {
+        NodeInstance instance = this.globalState.getNodeInstanceByID(instanceID);
+        if(req == null)
+            throw new NullPointerException();
+
+        return this.pi(instance, req);
+    }
+
+    //as pi(instanceID, req), for an active instance and a non null requirement
+    NodeInstance pi(NodeInstance instance, Requirement req)
+        throws
+            InstanceUnknownException
+    {
+        if(this.chooser != null)
+            return this.chosenPI(instance, req);
+        //the plugged strategy, or else the one implementing the pi version (if any)
+        PiStrategy strategy = this.piStrategy != null ? this.piStrategy : this.piVersion.getStrategy();
+        if(strategy != null)
+            return strategy.pi(this, instance, req);
+
         switch (this.piVersion) {
             case GREEDYPI:
-                return this.greedyPI(instanceID, req);
+                return this.greedyPI(instance, req);
             case RANDOMPI:
-                return this.randomPI(instanceID, req);
+                return this.randomPI(instance, req);
             default:
                 break;
         }
@@ -172,68 +270,54 @@ public class Application{
     }
 
     /**
-     * @param instanceID identifier of the instance with the req about we want a server
+     * @param instance active instance with the req about we want a server
      * @param req requirement that have to be satisfied
-     * @return the first found instance that can satisfy the requirement of the given instance
-     * @throws NullPointerException
-     * @throws IllegalArgumentException
-     * @throws InstanceUnknownException
+     * @return the instance with the least id among those that can satisfy the requirement of the given 
+     *         instance (so that the same instance is chosen in every run)
      */
-    private NodeInstance greedyPI(String instanceID, Requirement req)
-        throws
-            NullPointerException, 
-            IllegalArgumentException, 
-            InstanceUnknownException
-    {
-        NodeInstance instance = this.globalState.getNodeInstanceByID(instanceID);
-        if(req == null)
-            throw new NullPointerException();
-
-        NodeReq nodeReq = new NodeReq(instance.getNodeType().getName(), req.getName());
-        NodeCap nodeCap = this.bindingFunction.get(nodeReq);
-
-        if(nodeCap != null){
-            for(NodeInstance activeInstance : this.globalState.getActiveInstances().values()){
-                
-                boolean instanceRightType = nodeCap.getNodeName().equals(activeInstance.getNodeType().getName());
-                boolean instanceOfferingCap = activeInstance.getOfferedCaps().contains(nodeCap.getCap());
-
-                if(instanceOfferingCap && instanceRightType)
-                    return activeInstance;
-                
-            }
+    private NodeInstance greedyPI(NodeInstance instance, Requirement req){
+        CompiledTopology topology = this.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, req.getName()) : -1;
+
+        //instances of the right kind of node, offering the capability bound to req (sorted by id, 
+        //hence the first one is found without scanning them)
+        if(reqSlot != -1){
+            for(NodeInstance provider : this.globalState.getProviders(topology, node, reqSlot))
+                return provider;
         }
 
         return null;
     }
 
     /**
-     * @param instanceID identifier of the instance with the req about we want a server
+     * @param instance active instance with the req about we want a server
      * @param req requirement that have to be satisfied
      * @return a random instance among those that can satisfy the requirement of the given instance
-     * @throws NullPointerException
-     * @throws IllegalArgumentException
-     * @throws InstanceUnknownException
      */
-    private NodeInstance randomPI(String instanceID, Requirement req)
-        throws
-            NullPointerException, 
-            IllegalArgumentException, 
-            InstanceUnknownException
-    {
-        this.globalState.getNodeInstanceByID(instanceID);
-        if(req == null)
-            throw new NullPointerException();
-
+    private NodeInstance randomPI(NodeInstance instance, Requirement req){
         NodeInstance server = null;
 
-        List<NodeInstance> capableInstances = this.globalState.getCapableInstances(instanceID, req);
+        List<NodeInstance> capableInstances = this.globalState.getCapableInstances(instance, req);
         if(!capableInstances.isEmpty())
             server = capableInstances.get(this.randomIndex(0, capableInstances.size() - 1));
 
         return server;
     }
 
+    /**
+     * @param instance active instance with the req about we want a server
+     * @param req requirement that have to be satisfied
+     * @return the instance chosen by the chooser among those that can satisfy the requirement of the given 
+     *         instance (sorted by id)
+     */
+    private NodeInstance chosenPI(NodeInstance instance, Requirement req){
+        List<NodeInstance> capableInstances = this.globalState.getCapableInstances(instance, req);
+        if(capableInstances.size() < 2)
+            return !capableInstances.isEmpty() ? capableInstances.get(0) : null;
+        return capableInstances.get(this.chooser.choose(capableInstances.size()));
+    }
+
     //########################### MODEL RULES IMPLEMENTATION ############################
     public void opStart(String instanceID, String op)
         throws 
@@ -243,18 +327,31 @@ public class Application{
             OperationNotAvailableException
     {
         NodeInstance instance = this.globalState.getNodeInstanceByID(instanceID);
-        Transition targetTransition = instance.getTransitionByOp(op);
+        if(op == null)
+            throw new NullPointerException();
+        if(op.isBlank())
+            throw new IllegalArgumentException();
+
+        //transition precompiled in the management protocol tables of the topology
+        Transition targetTransition = this.getTopology().getTransition(instance, op);
 
         if(targetTransition == null)
             throw new OperationNotAvailableException();
 
+        this.applyOpStart(instance, targetTransition);
+    }
+
+    //applies opStart to an active instance, for which targetTransition is available
+    private void applyOpStart(NodeInstance instance, Transition targetTransition)
+        throws
+            InstanceUnknownException
+    {
         //instance goes in the new transient state
-        instance.setCurrentState(targetTransition.getName());
+        this.globalState.setCurrentState(instance, targetTransition.getName());
         //kill old runtime bindings (about previous state)
-        this.globalState.removeOldRuntimeBindings(instanceID);
+        this.globalState.removeOldRuntimeBindings(instance);
         //add new runtime bindings (about new transient state)
-        this.globalState.addNewRuntimeBindings(instanceID);
-
+        this.globalState.addNewRuntimeBindings(instance);
     }
 
     public void opEnd(String instanceID, String op)
@@ -271,23 +368,31 @@ public class Application{
         if(op.isBlank())
             throw new IllegalArgumentException();
 
-        if(this.globalState.isBrokenInstance(instanceID))
+        if(this.globalState.isBrokenInstance(instance))
             throw new FailedOperationException();
 
-        Transition targetTransition = 
-            instance.getNodeType().getManProtocol().getTransitions().get(instance.getCurrentState());
+        String endState = this.getTopology().getEndState(instance);
+        //not in a transient state (e.g., the operation was interrupted by a fault handler)
+        if(endState == null)
+            throw new OperationNotAvailableException();
         
-        if(!this.globalState.getPendingFaults(instanceID).isEmpty())
+        if(this.globalState.hasPendingFaults(instance))
             throw new FailedOperationException();
-        
 
+        this.applyOpEnd(instance, endState);
+    }
 
+    //applies opEnd to an active instance, which is not broken and has no pending faults
+    private void applyOpEnd(NodeInstance instance, String endState)
+        throws
+            InstanceUnknownException
+    {
         //instance goes in the new final state of the transition
-        instance.setCurrentState(targetTransition.getEndState());
+        this.globalState.setCurrentState(instance, endState);
         //kill old runtime bindings (about previous state)
-        this.globalState.removeOldRuntimeBindings(instanceID);
+        this.globalState.removeOldRuntimeBindings(instance);
         //add new runtime bindings (about new state)
-        this.globalState.addNewRuntimeBindings(instanceID);
+        this.globalState.addNewRuntimeBindings(instance);
     }
 
     /**
@@ -322,20 +427,24 @@ public class Application{
         if(node == null)
             throw new NodeUnknownException();
             
-        for(Requirement req : node.getReqs()){
-            //scaleOut do not handle such nodes
-            if(req.isContainment())
-                throw new RuleNotApplicableException();
-        }
+        //scaleOut do not handle such nodes
+        if(this.getContainmentReq(node) != null)
+            throw new RuleNotApplicableException();
         
+        return this.applyScaleOut(node, newNodeInstanceID);
+    }
+
+    //applies scaleOut to a node without containment requirements, with an unused id
+    private NodeInstance applyScaleOut(Node node, String newNodeInstanceID)
+        throws
+            InstanceUnknownException
+    {
         //creates new instance
         NodeInstance newNodeInstance = new NodeInstance(node, node.getManProtocol().getInitialState(), newNodeInstanceID);
-        //add the new instance to the set of active instances
-        this.globalState.getActiveInstances().put(newNodeInstanceID, newNodeInstance);
-        //initialize the runtime bindings for the new instance
-        this.globalState.getRuntimeBindings().put(newNodeInstanceID, new ArrayList<RuntimeBinding>());
+        //add the new instance to the set of active instances (with no runtime bindings)
+        this.globalState.addInstance(newNodeInstance);
         //add the runtime bindings
-        this.globalState.addNewRuntimeBindings(newNodeInstanceID);
+        this.globalState.addNewRuntimeBindings(newNodeInstance);
 
         return newNodeInstance;
     }   
@@ -363,14 +472,7 @@ public class Application{
         if(node == null)
             throw new NodeUnknownException();
 
-        Requirement containmentReq = null;
-        for(Requirement req : node.getReqs()){
-            if(req.isContainment()){
-                containmentReq = req;
-                break;
-            }
-        }
-
+        Requirement containmentReq = this.getContainmentReq(node);
         if(containmentReq == null)
             throw new RuleNotApplicableException();
 
@@ -380,15 +482,22 @@ public class Application{
         if(!nodeCap.getNodeName().equals(container.getNodeType().getName()))
             throw new RuleNotApplicableException();
 
+        return this.applyScaleOutC(node, containmentReq, newNodeInstanceID, container);
+    }
+
+    //applies scaleOutC to a node whose containment requirement can be satisfied by the (active) container, 
+    //with an unused id
+    private NodeInstance applyScaleOutC(Node node, Requirement containmentReq, String newNodeInstanceID, NodeInstance container)
+        throws
+            InstanceUnknownException
+    {
         NodeInstance newNodeInstance = new NodeInstance(node, node.getManProtocol().getInitialState(), newNodeInstanceID);
-        //add the new instance to the set of active instances
-        this.globalState.getActiveInstances().put(newNodeInstanceID, newNodeInstance);
-        //initialize the runtime bindings for the new instance
-        this.globalState.getRuntimeBindings().put(newNodeInstanceID, new ArrayList<RuntimeBinding>());
+        //add the new instance to the set of active instances (with no runtime bindings)
+        this.globalState.addInstance(newNodeInstance);
         //adding the containment runtime binding
-        this.globalState.addRuntimeBinding(newNodeInstanceID, containmentReq, containerID);
+        this.globalState.addRuntimeBinding(newNodeInstance, containmentReq, container);
         //add the non containment runtime bidnigns
-        this.globalState.addNewRuntimeBindings(newNodeInstanceID);
+        this.globalState.addNewRuntimeBindings(newNodeInstance);
 
         return newNodeInstance;
     }
@@ -400,29 +509,40 @@ public class Application{
             InstanceUnknownException, 
             IllegalArgumentException 
     {
-        this.globalState.getNodeInstanceByID(instanceID);
-
-        //remove all runtime bindings
-        this.globalState.removeAllRuntimeBindingsBothWays(instanceID);
-        
-        //remove the instance from the active instances and runtime bindings
-        this.globalState.getActiveInstances().remove(instanceID);
-        this.globalState.getRuntimeBindings().remove(instanceID);
-
-        //if instance was a container this cause the death of the instances it was containing
-        this.destroy();
+        this.applyScaleIn(this.globalState.getNodeInstanceByID(instanceID));
     }
 
-    private void destroy()
-        throws 
-            RuleNotApplicableException, 
-            NullPointerException, 
-            InstanceUnknownException, 
-            IllegalArgumentException 
+    //applies scaleIn to an active instance
+    private void applyScaleIn(NodeInstance instance)
+        throws
+            InstanceUnknownException
     {
-        List<NodeInstance> brokenInstances = this.globalState.getBrokenInstances();
-        if(!brokenInstances.isEmpty())
-            this.scaleIn(brokenInstances.get(0).getID());
+        //if instance is a container its death causes the death of the instances it contains (which would be 
+        //broken otherwise), hence the containment tree rooted in instance is killed (iteratively)
+        Deque<String> toKill = new ArrayDeque<>();
+        toKill.push(instance.getID());
+        while(!toKill.isEmpty()){
+            String killedID = toKill.pop();
+            NodeInstance killed = this.globalState.getActiveInstances().get(killedID);
+            if(killed != null){
+                //the contained instances are found before their containment runtime bindings are removed
+                for(String containedID : this.globalState.getContainedInstances(killedID))
+                    toKill.push(containedID);
+
+                //remove all runtime bindings
+                this.globalState.removeAllRuntimeBindingsBothWays(killed);
+                //remove the instance from the active instances and runtime bindings
+                this.globalState.removeInstance(killed);
+            }
+
+            //then all the broken instances are killed, including those outside the containment tree 
+            //(no-broken-instances rule)
+            if(toKill.isEmpty()){
+                NodeInstance brokenInstance = this.globalState.getBrokenInstance();
+                if(brokenInstance != null)
+                    toKill.push(brokenInstance.getID());
+            }
+        }
     }
 
     public void handleFault(Fault fault)
@@ -436,42 +556,35 @@ public class Application{
             throw new NullPointerException();
 
         // not a pending fault
-        if(!this.globalState.getPendingFaults().contains(fault) || this.globalState.isResolvableFault(fault))
+        if(!this.globalState.isPendingFault(fault) || this.globalState.isResolvableFault(fault))
             throw new RuleNotApplicableException();
 
         NodeInstance instance = this.globalState.getNodeInstanceByID(fault.getNodeInstanceID());
-        List<String> faultStates = new ArrayList<>();
-
-        //phi: state s -> fault handling states if fault in s
-        //rho: state s -> requirements needed in s
-        List<String> phiStates = instance.getNodeType().getManProtocol().getPhi().get(instance.getCurrentState());
-        
-        for(String phiState : phiStates){
-            //if phiState has as a requirement the faulted requirement then it is not usable
-            if(!instance.getNodeType().getManProtocol().getRho().get(phiState).contains(fault.getReq()))
-                faultStates.add(phiState);
-        }
 
-        if(faultStates.isEmpty())
+        String targetFaultState = this.chooseFaultHandlingState(instance, fault.getReq());
+        if(targetFaultState == null)
             throw new FailedFaultHandlingExecption();
-        
-        //to maintain detrminism behaviour we always go to the state with most needed requirements
-        String targetFaultState = null;
-        int max = -1;
-        for(String state : faultStates){
-            int tmp = instance.getNodeType().getManProtocol().getRho().get(state).size();
-            if(tmp > max){
-                max = tmp; 
-                targetFaultState = state;
-            }
-        }
 
         //put the instance in the new fault handling state
-        instance.setCurrentState(targetFaultState);
+        this.globalState.setCurrentState(instance, targetFaultState);
         //remove old bindings
-        this.globalState.removeOldRuntimeBindings(instance.getID());
+        this.globalState.removeOldRuntimeBindings(instance);
         //add new bindings
-        this.globalState.addNewRuntimeBindings(instance.getID());
+        this.globalState.addNewRuntimeBindings(instance);
+    }
+
+    //state handling the fault of req in the current state of instance (null if none)
+    private String chooseFaultHandlingState(NodeInstance instance, Requirement req){
+        //the fault handling state (among the phi states not needing the faulted requirement, the one with 
+        //most needed requirements, to maintain deterministic behaviour) is precompiled in the topology
+        if(this.chooser == null)
+            return this.getTopology().getFaultHandlingState(instance, req);
+
+        //otherwise the chooser chooses among all the phi states not needing the faulted requirement
+        List<String> faultHandlingStates = this.getTopology().getFaultHandlingStates(instance, req);
+        if(faultHandlingStates.size() < 2)
+            return !faultHandlingStates.isEmpty() ? faultHandlingStates.get(0) : null;
+        return faultHandlingStates.get(this.chooser.choose(faultHandlingStates.size()));
     }
 
     /***
@@ -495,114 +608,32 @@ public class Application{
 
         String instanceID = fault.getNodeInstanceID();
         Requirement failedReq = fault.getReq();
-        this.globalState.getNodeInstanceByID(instanceID);
+        NodeInstance instance = this.globalState.getNodeInstanceByID(instanceID);
         
         //delete the runtime binding about the fault
         this.globalState.removeRuntimeBinding(instanceID, failedReq);
         //add new runtime binding with the new instance (retireved by pi)
         //pi cant return null because the fault is resolvable
-        this.globalState.addRuntimeBinding(instanceID, failedReq, this.pi(instanceID, failedReq).getID());
+        this.globalState.addRuntimeBinding(instance, failedReq, this.pi(instance, failedReq));
 
     }
 
     //#region UTILITIES
 
+    /**
+     * @return a copy of the application, which shares with this application its static topology (nodes, 
+     *         management protocols and binding function), as only the global state changes when 
+     *         executing the rules of the model (adding nodes or static bindings to either application 
+     *         first copies its nodes and binding function, so that the other one does not change)
+     */
     @Override
     public Application clone(){ 
-        Application clonedApp = new Application(this.name, this.piVersion);
-
-        //CLONE APPLICATION TOPOLOGY
-
-        //cloning nodes
-        for(String nodeName : this.nodes.keySet()){
-            Node node = this.nodes.get(nodeName);
-            ManagementProtocol nodeMP = node.getManProtocol();
-
-            Node clonedNode = new Node(node.getName(), new ManagementProtocol(new String(nodeMP.getInitialState())));
-            ManagementProtocol clonedNodeMP = clonedNode.getManProtocol();
-
-            //cloning ops
-            for(String nO : node.getOps())
-                clonedNode.addOperation(nO);
-            
-            //cloning reqs
-            for(Requirement nR : node.getReqs())
-                clonedNode.addRequirement(nR.clone());
-            
-            //cloning caps
-            for(String nC : node.getCaps())
-                clonedNode.addCapability(nC);
-
-            //cloning states
-            for(String nS : nodeMP.getStates())
-                clonedNodeMP.addState(nS);
-
-            //cloning transitons
-            for(Transition nT : nodeMP.getTransitions().values())
-                clonedNodeMP.addTransition(nT.getStartState(), nT.getOp(), nT.getEndState());
-            
-            //cloning rho
-            for(String nS : nodeMP.getRho().keySet()){
-                for(Requirement req : nodeMP.getRho().get(nS))
-                    clonedNodeMP.getRho().get(nS).add(req.clone());
-            }
-            //cloning gamma
-            for(String nS : nodeMP.getGamma().keySet()){
-                for(String cap : nodeMP.getGamma().get(nS))
-                    clonedNodeMP.getGamma().get(nS).add(cap);
-            }
-            //cloning phi
-            for(String nS : nodeMP.getPhi().keySet()){
-                for(String faultHandleState : nodeMP.getPhi().get(nS))
-                    clonedNodeMP.getPhi().get(nS).add(faultHandleState);
-            }
-
-            clonedApp.addNode(clonedNode);
-        }
-
-        //cloning static binding
-        for(NodeReq nodeReq : this.bindingFunction.keySet()){
-            NodeCap nodeCap = this.bindingFunction.get(nodeReq);
-
-            NodeReq clonedNodeReq = new NodeReq(nodeReq.getNodeName(), nodeReq.getReqName());
-            NodeCap clonedNodeCap = new NodeCap(nodeCap.getNodeName(), nodeCap.getCap());
-
-            clonedApp.bindingFunction.put(clonedNodeReq, clonedNodeCap);
-        }
-
-        //CLONE THE GLOBAL STATE
-
-        //clone the active instances
-        for(NodeInstance activeInstance : this.globalState.getActiveInstances().values()){
-            //retrieve the node type (CLONED) of the cloned instance we're about to make
-            Node clonedNode = clonedApp.getNodes().get(activeInstance.getNodeType().getName());
-
-            //it is important that the cloned instance has as a node type referement the cloned node
-            NodeInstance clonedInstance = new NodeInstance(
-                clonedNode, 
-                activeInstance.getCurrentState(), 
-                activeInstance.getID()
-            );
-
-            clonedApp.getGlobalState().getActiveInstances().put(clonedInstance.getID(), clonedInstance);
-        }
-
-        //clone the runtime bindings
-        for(String instanceID : this.globalState.getRuntimeBindings().keySet()){
-            List<RuntimeBinding> clonedRuntimeBindings = new ArrayList<>();
-
-            for(RuntimeBinding instanceRB : this.globalState.getRuntimeBindings().get(instanceID)){
-
-                RuntimeBinding clonedRuntimeBinding = new RuntimeBinding(
-                    instanceRB.getReq().clone(), 
-                    instanceRB.getNodeInstanceID()
-                );
-                
-                clonedRuntimeBindings.add(clonedRuntimeBinding);
-            }
-            clonedApp.globalState.getRuntimeBindings().put(instanceID, clonedRuntimeBindings);
-        }
-
+        Application clonedApp = new Application(this.name, this.piVersion, this.bindingFunction, this.nodes);
+        this.sharedSpec = true;
+        clonedApp.sharedSpec = true;
+        clonedApp.setPiStrategy(this.piStrategy);
+        clonedApp.topology = this.getTopology();
+        clonedApp.setGlobalState(this.globalState.clone(clonedApp));
         return clonedApp;
     }
 
@@ -617,7 +648,8 @@ public class Application{
             this.globalState.equals(check.globalState) &&
             this.nodes.equals(check.nodes) && 
             this.name.equals(check.name) &&
-            this.piVersion == check.piVersion
+            this.piVersion == check.piVersion &&
+            this.piStrategy == check.piStrategy
         ;
     }
 
@@ -662,4 +694,157 @@ public class Application{
         }
     }
 
+    /**
+     * executes an action as execute does, but reporting the outcome of its execution instead of throwing, 
+     * so that no exception is constructed when the action cannot be applied (which leaves the global state 
+     * unchanged) or it is a failing opEnd
+     * @param action the action to execute
+     * @return the outcome of the execution of the action
+     */
+    public ExecutionOutcome tryExecute(Action action){
+        try {
+            switch (action.getActionName()) {
+                case "opStart":
+                    OpStart opStart = (OpStart) action;
+                    return this.tryOpStart(opStart.getInstanceID(), opStart.getOpName());
+                case "opEnd":
+                    OpEnd opEnd = (OpEnd) action;
+                    return this.tryOpEnd(opEnd.getInstanceID(), opEnd.getOpName());
+                case "scaleIn":
+                    ScaleIn scaleIn = (ScaleIn) action;
+                    return this.tryScaleIn(scaleIn.getInstanceID());
+                case "scaleOut":
+                    ScaleOut scaleOut = (ScaleOut) action;
+                    return this.tryScaleOut(scaleOut.getNodeName(), scaleOut.getIDToAssign());
+                case "scaleOutC": 
+                    ScaleOutC scaleOutC = (ScaleOutC) action;
+                    return this.tryScaleOutC(scaleOutC.getNodeName(), scaleOutC.getIDToAssign(), scaleOutC.getContainerID());
+    
+                default:
+                    return ExecutionOutcome.APPLIED;
+            }
+        } catch (InstanceUnknownException e) {
+            //not thrown, as the instances are checked to be active before applying the rules
+            return ExecutionOutcome.UNKNOWN_INSTANCE;
+        }
+    }
+
+    //#region NON-THROWING RULES
+
+    //the rules check the given ids directly on the active instances, and then apply the rules without 
+    //checking them again
+
+    private ExecutionOutcome tryOpStart(String instanceID, String op)
+        throws
+            InstanceUnknownException
+    {
+        NodeInstance instance = this.getActiveInstance(instanceID);
+        if(instance == null)
+            return ExecutionOutcome.UNKNOWN_INSTANCE;
+        if(op == null || op.isBlank())
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        Transition targetTransition = this.getTopology().getTransition(instance, op);
+        if(targetTransition == null)
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        this.applyOpStart(instance, targetTransition);
+        return ExecutionOutcome.APPLIED;
+    }
+
+    private ExecutionOutcome tryOpEnd(String instanceID, String op)
+        throws
+            InstanceUnknownException
+    {
+        NodeInstance instance = this.getActiveInstance(instanceID);
+        if(instance == null)
+            return ExecutionOutcome.UNKNOWN_INSTANCE;
+        if(op == null || op.isBlank())
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        if(this.globalState.isBrokenInstance(instance))
+            return ExecutionOutcome.FAULTED;
+
+        String endState = this.getTopology().getEndState(instance);
+        if(endState == null)
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        if(this.globalState.hasPendingFaults(instance))
+            return ExecutionOutcome.FAULTED;
+
+        this.applyOpEnd(instance, endState);
+        return ExecutionOutcome.APPLIED;
+    }
+
+    private ExecutionOutcome tryScaleOut(String nodeName, String newNodeInstanceID)
+        throws
+            InstanceUnknownException
+    {
+        if(nodeName == null || newNodeInstanceID == null || nodeName.isBlank() || newNodeInstanceID.isBlank())
+            return ExecutionOutcome.NOT_APPLICABLE;
+        if(this.getActiveInstance(newNodeInstanceID) != null)
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        Node node = this.nodes.get(nodeName);
+        if(node == null || this.getContainmentReq(node) != null)
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        this.applyScaleOut(node, newNodeInstanceID);
+        return ExecutionOutcome.APPLIED;
+    }
+
+    private ExecutionOutcome tryScaleOutC(String nodeName, String newNodeInstanceID, String containerID)
+        throws
+            InstanceUnknownException
+    {
+        NodeInstance container = this.getActiveInstance(containerID);
+        if(container == null)
+            return ExecutionOutcome.UNKNOWN_INSTANCE;
+
+        if(nodeName == null || newNodeInstanceID == null || nodeName.isBlank() || newNodeInstanceID.isBlank())
+            return ExecutionOutcome.NOT_APPLICABLE;
+        if(this.getActiveInstance(newNodeInstanceID) != null)
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        Node node = this.nodes.get(nodeName);
+        Requirement containmentReq = node != null ? this.getContainmentReq(node) : null;
+        if(containmentReq == null)
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        NodeCap nodeCap = this.bindingFunction.get(new NodeReq(nodeName, containmentReq.getName()));
+        if(nodeCap == null || !nodeCap.getNodeName().equals(container.getNodeType().getName()))
+            return ExecutionOutcome.NOT_APPLICABLE;
+
+        this.applyScaleOutC(node, containmentReq, newNodeInstanceID, container);
+        return ExecutionOutcome.APPLIED;
+    }
+
+    private ExecutionOutcome tryScaleIn(String instanceID)
+        throws
+            InstanceUnknownException
+    {
+        NodeInstance instance = this.getActiveInstance(instanceID);
+        if(instance == null)
+            return ExecutionOutcome.UNKNOWN_INSTANCE;
+
+        this.applyScaleIn(instance);
+        return ExecutionOutcome.APPLIED;
+    }
+
+    //active instance with the given id (null if none)
+    private NodeInstance getActiveInstance(String instanceID){
+        return instanceID != null ? this.globalState.getActiveInstances().get(instanceID) : null;
+    }
+
+    //containment requirement of node (null if none)
+    private Requirement getContainmentReq(Node node){
+        for(Requirement req : node.getReqs()){
+            if(req.isContainment())
+                return req;
+        }
+        return null;
+    }
+
+    //#endregion
+
 }
\ No newline at end of file
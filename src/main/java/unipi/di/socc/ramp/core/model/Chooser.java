@@ -0,0 +1,15 @@
+package unipi.di.socc.ramp.core.model;
+
+/**
+ * makes the nondeterministic choices of the rules of the model, that is, which of the instances that can 
+ * satisfy a requirement is bound to it, and which of the admissible fault handling states handles a fault 
+ * (see Application.setChooser)
+ */
+public interface Chooser {
+
+    /**
+     * @param alternatives number of alternatives (at least two), in the order given by the rule
+     * @return the index of the chosen alternative
+     */
+    public int choose(int alternatives);
+}
@@ -0,0 +1,451 @@
+package unipi.di.socc.ramp.core.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * dense, integer-indexed tables of the static topology of an application (see Application.getTopology)
+    * nodes are numbered, and so are the requirements, capabilities and states of each node (slots)
+    * the binding function maps the requirement slots of a node to a node and a capability slot of such node
+    * rho and gamma map each state of a node to the bits of the requirements needed and capabilities offered
+    * management protocols map each state of a node to the transitions starting from it (by operation), to
+      the end state of the transition it is (if transient), and to the state handling each faulted requirement
+ * the tables are built once, as the static topology does not change while executing the rules of the model
+   (they are built again if a management protocol is edited, see isUpToDate)
+ */
+public class CompiledTopology {
+
+    //node -> management protocol of the node, and its version when the tables were built
+    private final ManagementProtocol[] protocols;
+    private final long[] protocolVersions;
+    //number of edits of all the management protocols when the tables were last found up to date
+    private volatile long checkedEdits;
+
+    //node name -> index of the node
+    private final Map<String, Integer> nodeIndexes;
+    private final String[] nodeNames;
+
+    //node -> requirement name -> slot of the requirement
+    private final List<Map<String, Integer>> reqSlots;
+    //node -> capability name -> slot of the capability
+    private final List<Map<String, Integer>> capSlots;
+    //node -> capability slot -> name of the capability
+    private final String[][] capNames;
+    //node -> state -> index of the state
+    private final List<Map<String, Integer>> stateIndexes;
+
+    //node -> requirement slot -> node bound to the requirement by the binding function (-1 if unbound)
+    private final int[][] boundNodes;
+    //node -> requirement slot -> capability slot (of the bound node) bound to the requirement (-1 if unbound)
+    private final int[][] boundCaps;
+
+    //node -> state -> requirement slots needed in the state (rho)
+    private final BitSet[][] neededReqs;
+    //node -> state -> capability slots offered in the state (gamma)
+    private final BitSet[][] offeredCaps;
+
+    //node -> operation -> slot of the operation
+    private final List<Map<String, Integer>> opSlots;
+    //node -> state -> operation slot -> transition starting from the state with the operation (null if none)
+    private final Transition[][][] transitions;
+    //node -> state -> end state of the transition that is the state (null if not transient)
+    private final String[][] endStates;
+    //node -> state -> requirement slot -> state handling the fault of the requirement (null if none)
+    private final String[][][] faultHandlingStates;
+
+    /**
+     * @param nodes nodes of the application
+     * @param bindingFunction binding function of the static topology
+     * @throws NullPointerException
+     */
+    public CompiledTopology(Map<String, Node> nodes, Map<NodeReq, NodeCap> bindingFunction) throws NullPointerException {
+        if(nodes == null || bindingFunction == null)
+            throw new NullPointerException();
+
+        //(the versions are read before reading the protocols, so that edits made meanwhile are not missed)
+        this.checkedEdits = ManagementProtocol.getEdits();
+        this.protocols = new ManagementProtocol[nodes.size()];
+        this.protocolVersions = new long[nodes.size()];
+        this.nodeIndexes = new HashMap<>();
+        this.nodeNames = new String[nodes.size()];
+        this.reqSlots = new ArrayList<>();
+        this.capSlots = new ArrayList<>();
+        this.stateIndexes = new ArrayList<>();
+        this.opSlots = new ArrayList<>();
+
+        //the slots also cover the names only appearing in the binding function, rho or gamma
+        for(Node node : nodes.values()){
+            int nodeIndex = this.nodeIndexes.size();
+            this.nodeIndexes.put(node.getName(), nodeIndex);
+            this.nodeNames[nodeIndex] = node.getName();
+
+            ManagementProtocol mp = node.getManProtocol();
+            this.protocols[nodeIndex] = mp;
+            this.protocolVersions[nodeIndex] = mp.getVersion();
+            Map<String, Integer> nodeReqSlots = new HashMap<>();
+            Map<String, Integer> nodeCapSlots = new HashMap<>();
+            Map<String, Integer> nodeStateIndexes = new HashMap<>();
+            Map<String, Integer> nodeOpSlots = new HashMap<>();
+
+            for(Requirement req : node.getReqs())
+                nodeReqSlots.putIfAbsent(req.getName(), nodeReqSlots.size());
+            for(String cap : node.getCaps())
+                nodeCapSlots.putIfAbsent(cap, nodeCapSlots.size());
+            for(String state : mp.getStates())
+                nodeStateIndexes.putIfAbsent(state, nodeStateIndexes.size());
+            for(String state : mp.getRho().keySet()){
+                nodeStateIndexes.putIfAbsent(state, nodeStateIndexes.size());
+                for(Requirement req : mp.getRho().get(state))
+                    nodeReqSlots.putIfAbsent(req.getName(), nodeReqSlots.size());
+            }
+            for(String state : mp.getGamma().keySet()){
+                nodeStateIndexes.putIfAbsent(state, nodeStateIndexes.size());
+                for(String cap : mp.getGamma().get(state))
+                    nodeCapSlots.putIfAbsent(cap, nodeCapSlots.size());
+            }
+            for(String state : mp.getPhi().keySet()){
+                nodeStateIndexes.putIfAbsent(state, nodeStateIndexes.size());
+                for(String phiState : mp.getPhi().get(state))
+                    nodeStateIndexes.putIfAbsent(phiState, nodeStateIndexes.size());
+            }
+            for(String op : node.getOps())
+                nodeOpSlots.putIfAbsent(op, nodeOpSlots.size());
+            for(Transition transition : mp.getTransitions().values()){
+                nodeStateIndexes.putIfAbsent(transition.getStartState(), nodeStateIndexes.size());
+                nodeStateIndexes.putIfAbsent(transition.getName(), nodeStateIndexes.size());
+                nodeOpSlots.putIfAbsent(transition.getOp(), nodeOpSlots.size());
+            }
+
+            this.reqSlots.add(nodeReqSlots);
+            this.capSlots.add(nodeCapSlots);
+            this.stateIndexes.add(nodeStateIndexes);
+            this.opSlots.add(nodeOpSlots);
+        }
+        for(NodeReq nodeReq : bindingFunction.keySet()){
+            NodeCap nodeCap = bindingFunction.get(nodeReq);
+            Integer reqNode = this.nodeIndexes.get(nodeReq.getNodeName());
+            Integer capNode = this.nodeIndexes.get(nodeCap.getNodeName());
+            if(reqNode != null && capNode != null){
+                this.reqSlots.get(reqNode).putIfAbsent(nodeReq.getReqName(), this.reqSlots.get(reqNode).size());
+                this.capSlots.get(capNode).putIfAbsent(nodeCap.getCap(), this.capSlots.get(capNode).size());
+            }
+        }
+
+        this.capNames = new String[this.nodeNames.length][];
+        for(int node = 0; node < this.nodeNames.length; node++){
+            this.capNames[node] = new String[this.capSlots.get(node).size()];
+            for(String cap : this.capSlots.get(node).keySet())
+                this.capNames[node][this.capSlots.get(node).get(cap)] = cap;
+        }
+
+        //binding function
+        this.boundNodes = new int[this.nodeNames.length][];
+        this.boundCaps = new int[this.nodeNames.length][];
+        for(int node = 0; node < this.nodeNames.length; node++){
+            this.boundNodes[node] = new int[this.reqSlots.get(node).size()];
+            this.boundCaps[node] = new int[this.reqSlots.get(node).size()];
+            for(int reqSlot = 0; reqSlot < this.boundNodes[node].length; reqSlot++){
+                this.boundNodes[node][reqSlot] = -1;
+                this.boundCaps[node][reqSlot] = -1;
+            }
+        }
+        for(NodeReq nodeReq : bindingFunction.keySet()){
+            NodeCap nodeCap = bindingFunction.get(nodeReq);
+            Integer reqNode = this.nodeIndexes.get(nodeReq.getNodeName());
+            Integer capNode = this.nodeIndexes.get(nodeCap.getNodeName());
+            if(reqNode != null && capNode != null){
+                int reqSlot = this.reqSlots.get(reqNode).get(nodeReq.getReqName());
+                this.boundNodes[reqNode][reqSlot] = capNode;
+                this.boundCaps[reqNode][reqSlot] = this.capSlots.get(capNode).get(nodeCap.getCap());
+            }
+        }
+
+        //rho and gamma
+        this.neededReqs = new BitSet[this.nodeNames.length][];
+        this.offeredCaps = new BitSet[this.nodeNames.length][];
+        for(int node = 0; node < this.nodeNames.length; node++){
+            ManagementProtocol mp = nodes.get(this.nodeNames[node]).getManProtocol();
+            Map<String, Integer> nodeStateIndexes = this.stateIndexes.get(node);
+            this.neededReqs[node] = new BitSet[nodeStateIndexes.size()];
+            this.offeredCaps[node] = new BitSet[nodeStateIndexes.size()];
+
+            for(String state : nodeStateIndexes.keySet()){
+                int stateIndex = nodeStateIndexes.get(state);
+                this.neededReqs[node][stateIndex] = new BitSet();
+                this.offeredCaps[node][stateIndex] = new BitSet();
+
+                if(mp.getRho().get(state) != null){
+                    for(Requirement req : mp.getRho().get(state))
+                        this.neededReqs[node][stateIndex].set(this.reqSlots.get(node).get(req.getName()));
+                }
+                if(mp.getGamma().get(state) != null){
+                    for(String cap : mp.getGamma().get(state))
+                        this.offeredCaps[node][stateIndex].set(this.capSlots.get(node).get(cap));
+                }
+            }
+        }
+
+        //management protocols
+        this.transitions = new Transition[this.nodeNames.length][][];
+        this.endStates = new String[this.nodeNames.length][];
+        this.faultHandlingStates = new String[this.nodeNames.length][][];
+        for(int node = 0; node < this.nodeNames.length; node++){
+            ManagementProtocol mp = nodes.get(this.nodeNames[node]).getManProtocol();
+            Map<String, Integer> nodeStateIndexes = this.stateIndexes.get(node);
+            this.transitions[node] = new Transition[nodeStateIndexes.size()][this.opSlots.get(node).size()];
+            this.endStates[node] = new String[nodeStateIndexes.size()];
+            this.faultHandlingStates[node] = new String[nodeStateIndexes.size()][this.reqSlots.get(node).size()];
+
+            //the first transition (in the order of the protocol) starting from a state with an operation is taken
+            for(Transition transition : mp.getTransitions().values()){
+                int startState = nodeStateIndexes.get(transition.getStartState());
+                int opSlot = this.opSlots.get(node).get(transition.getOp());
+                if(this.transitions[node][startState][opSlot] == null)
+                    this.transitions[node][startState][opSlot] = transition;
+                this.endStates[node][nodeStateIndexes.get(transition.getName())] = transition.getEndState();
+            }
+
+            for(String state : nodeStateIndexes.keySet()){
+                List<String> phiStates = mp.getPhi().get(state);
+                if(phiStates == null)
+                    continue;
+                for(String reqName : this.reqSlots.get(node).keySet()){
+                    int reqSlot = this.reqSlots.get(node).get(reqName);
+                    this.faultHandlingStates[node][nodeStateIndexes.get(state)][reqSlot] = 
+                        this.chooseFaultHandlingState(node, phiStates, reqSlot);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if no management protocol of the nodes was edited since the tables were built (which is 
+     *         checked protocol by protocol only if some management protocol was edited since last checked)
+     */
+    public boolean isUpToDate() {
+        long edits = ManagementProtocol.getEdits();
+        if(edits == this.checkedEdits)
+            return true;
+
+        for(int node = 0; node < this.protocols.length; node++){
+            if(this.protocols[node].getVersion() != this.protocolVersions[node])
+                return false;
+        }
+        this.checkedEdits = edits;
+        return true;
+    }
+
+    /**
+     * among the fault handling states not needing the faulted requirement, the one with most needed requirements 
+     * is chosen (the first one, in the order of phi, if more have the same number of needed requirements)
+     */
+    private String chooseFaultHandlingState(int node, List<String> phiStates, int reqSlot){
+        String targetFaultState = null;
+        int max = -1;
+        for(String phiState : phiStates){
+            Integer phiStateIndex = this.stateIndexes.get(node).get(phiState);
+            BitSet phiStateReqs = this.neededReqs[node][phiStateIndex];
+            if(!phiStateReqs.get(reqSlot) && phiStateReqs.cardinality() > max){
+                max = phiStateReqs.cardinality();
+                targetFaultState = phiState;
+            }
+        }
+        return targetFaultState;
+    }
+
+    /**
+     * @param nodeName name of a node
+     * @return the index of the node (-1 if unknown)
+     */
+    public int getNodeIndex(String nodeName){
+        Integer nodeIndex = this.nodeIndexes.get(nodeName);
+        return nodeIndex != null ? nodeIndex : -1;
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int getNodeCount(){
+        return this.nodeNames.length;
+    }
+
+    /**
+     * @param node index of a node
+     * @return the name of the node
+     */
+    public String getNodeName(int node){
+        return this.nodeNames[node];
+    }
+
+    /**
+     * @param node index of a node
+     * @param reqName name of a requirement of the node
+     * @return the slot of the requirement in the node (-1 if unknown)
+     */
+    public int getReqSlot(int node, String reqName){
+        Integer reqSlot = this.reqSlots.get(node).get(reqName);
+        return reqSlot != null ? reqSlot : -1;
+    }
+
+    /**
+     * @param node index of a node
+     * @param state state of the node
+     * @return the index of the state in the node (-1 if unknown)
+     */
+    public int getStateIndex(int node, String state){
+        Integer stateIndex = this.stateIndexes.get(node).get(state);
+        return stateIndex != null ? stateIndex : -1;
+    }
+
+    /**
+     * @param node index of a node
+     * @param reqSlot slot of a requirement of the node
+     * @return the index of the node bound to the requirement by the binding function (-1 if unbound)
+     */
+    public int getBoundNode(int node, int reqSlot){
+        return this.boundNodes[node][reqSlot];
+    }
+
+    /**
+     * @param node index of a node
+     * @param reqSlot slot of a requirement of the node
+     * @return the capability slot (of the bound node) bound to the requirement (-1 if unbound)
+     */
+    public int getBoundCap(int node, int reqSlot){
+        return this.boundCaps[node][reqSlot];
+    }
+
+    /**
+     * @param node index of a node
+     * @param state index of a state of the node
+     * @param reqSlot slot of a requirement of the node
+     * @return true if the requirement is needed in the state
+     */
+    public boolean isNeeded(int node, int state, int reqSlot){
+        return this.neededReqs[node][state].get(reqSlot);
+    }
+
+    /**
+     * @param node index of a node
+     * @param state index of a state of the node
+     * @param capSlot slot of a capability of the node
+     * @return true if the capability is offered in the state
+     */
+    public boolean isOffered(int node, int state, int capSlot){
+        return this.offeredCaps[node][state].get(capSlot);
+    }
+
+    /**
+     * @param node index of a node
+     * @return the number of requirement slots of the node
+     */
+    public int getReqCount(int node){
+        return this.reqSlots.get(node).size();
+    }
+
+    /**
+     * @param node index of a node
+     * @return the number of capability slots of the node
+     */
+    public int getCapCount(int node){
+        return this.capSlots.get(node).size();
+    }
+
+    /**
+     * @param node index of a node
+     * @param capSlot slot of a capability of the node
+     * @return the name of the capability
+     */
+    public String getCapName(int node, int capSlot){
+        return this.capNames[node][capSlot];
+    }
+
+    /**
+     * @param node index of a node
+     * @param state index of a state of the node
+     * @return the capability slots offered in the state (not to be modified)
+     */
+    public BitSet getOfferedCaps(int node, int state){
+        return this.offeredCaps[node][state];
+    }
+
+    /**
+     * @param instance an active instance
+     * @param op an operation of the node of instance
+     * @return the transition starting from the current state of instance with op (null if none)
+     */
+    public Transition getTransition(NodeInstance instance, String op){
+        int node = this.getNodeIndex(instance.getNodeType().getName());
+        if(node == -1)
+            return null;
+        int state = this.getStateIndex(node, instance.getCurrentState());
+        Integer opSlot = this.opSlots.get(node).get(op);
+        if(state == -1 || opSlot == null)
+            return null;
+        return this.transitions[node][state][opSlot];
+    }
+
+    /**
+     * @param instance an active instance
+     * @return the end state of the transition that is the current state of instance (null if not transient)
+     */
+    public String getEndState(NodeInstance instance){
+        int node = this.getNodeIndex(instance.getNodeType().getName());
+        int state = node != -1 ? this.getStateIndex(node, instance.getCurrentState()) : -1;
+        return state != -1 ? this.endStates[node][state] : null;
+    }
+
+    /**
+     * @param instance an active instance
+     * @param req a requirement needed by instance in its current state
+     * @return the state handling the fault of req in the current state of instance (null if none)
+     */
+    public String getFaultHandlingState(NodeInstance instance, Requirement req){
+        int node = this.getNodeIndex(instance.getNodeType().getName());
+        int state = node != -1 ? this.getStateIndex(node, instance.getCurrentState()) : -1;
+        int reqSlot = node != -1 ? this.getReqSlot(node, req.getName()) : -1;
+        return state != -1 && reqSlot != -1 ? this.faultHandlingStates[node][state][reqSlot] : null;
+    }
+
+    /**
+     * @param instance an active instance
+     * @param req a requirement needed by instance in its current state
+     * @return the states that can handle the fault of req in the current state of instance, that is, the phi 
+     *         states not needing req, starting from the one given by getFaultHandlingState (empty if none)
+     */
+    public List<String> getFaultHandlingStates(NodeInstance instance, Requirement req){
+        List<String> faultHandlingStates = new ArrayList<>();
+        String faultHandlingState = this.getFaultHandlingState(instance, req);
+        if(faultHandlingState == null)
+            return faultHandlingStates;
+
+        faultHandlingStates.add(faultHandlingState);
+        int node = this.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = this.getReqSlot(node, req.getName());
+        for(String phiState : instance.getNodeType().getManProtocol().getPhi().get(instance.getCurrentState())){
+            Integer phiStateIndex = this.stateIndexes.get(node).get(phiState);
+            if(!this.neededReqs[node][phiStateIndex].get(reqSlot) && !faultHandlingStates.contains(phiState))
+                faultHandlingStates.add(phiState);
+        }
+        return faultHandlingStates;
+    }
+
+    /**
+     * @param instance an active instance
+     * @param node index of a node
+     * @param reqSlot slot of a requirement of the node
+     * @return true if instance can serve the requirement (it is an instance of the node bound to the
+     *         requirement, and it currently offers the capability bound to the requirement)
+     */
+    public boolean canServe(NodeInstance instance, int node, int reqSlot){
+        int boundNode = this.boundNodes[node][reqSlot];
+        if(boundNode == -1 || !this.nodeNames[boundNode].equals(instance.getNodeType().getName()))
+            return false;
+
+        int state = this.getStateIndex(boundNode, instance.getCurrentState());
+        return state != -1 && this.offeredCaps[boundNode][state].get(this.boundCaps[node][reqSlot]);
+    }
+}
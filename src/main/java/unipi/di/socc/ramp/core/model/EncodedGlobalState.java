@@ -0,0 +1,41 @@
+package unipi.di.socc.ramp.core.model;
+
+import java.util.Arrays;
+
+/**
+ * compact encoding of a global state as an array of ints (see GlobalState.encode), 
+ * whose equality is the equality of the fingerprints of the encoded global states
+    * for each active instance (sorted by code): id, node type, current state, number of runtime bindings
+    * followed by the runtime bindings of the instance (sorted), each as requirement and serving instance
+ */
+public final class EncodedGlobalState {
+
+    private final int[] codes;
+    private final int hash;
+
+    EncodedGlobalState(int[] codes){
+        this.codes = codes;
+        this.hash = Arrays.hashCode(codes);
+    }
+
+    /**
+     * @return the number of ints encoding the global state
+     */
+    public int size(){
+        return this.codes.length;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if(!(obj instanceof EncodedGlobalState))
+            return false;
+
+        EncodedGlobalState check = (EncodedGlobalState) obj;
+        return this.hash == check.hash && Arrays.equals(this.codes, check.codes);
+    }
+
+    @Override
+    public int hashCode(){
+        return this.hash;
+    }
+}
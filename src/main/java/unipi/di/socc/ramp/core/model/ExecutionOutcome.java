@@ -0,0 +1,15 @@
+package unipi.di.socc.ramp.core.model;
+
+/**
+ * outcome of executing an action with Application.tryExecute
+ */
+public enum ExecutionOutcome {
+    //the rule of the action was applied
+    APPLIED, 
+    //the action is an opEnd failing because of the pending faults of its instance (or because it is broken)
+    FAULTED, 
+    //the rule of the action cannot be applied in the current global state (which is left unchanged)
+    NOT_APPLICABLE, 
+    //the action refers to an instance that is not active (and the global state is left unchanged)
+    UNKNOWN_INSTANCE
+}
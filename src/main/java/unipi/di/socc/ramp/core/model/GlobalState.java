@@ -1,9 +1,21 @@
 package unipi.di.socc.ramp.core.model;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
 
 import unipi.di.socc.ramp.core.model.exceptions.*;
 
@@ -11,7 +23,57 @@ public class GlobalState {
     
     private Application app;
     private final Map<String, NodeInstance> activeInstances;
-    private final Map<String, List<RuntimeBinding>> runtimeBindings;
+    //instance id -> runtime bindings of the instance, each in the slot of its requirement (null if the 
+    //requirement is not bound)
+    private final Map<String, RuntimeBinding[]> runtimeBindings;
+
+    //undo log of the changes of the global state (null if changes are not being recorded)
+    private transient List<Runnable> trail;
+
+    //node -> capability slot -> active instances of the node currently offering the capability (sorted by id, 
+    //so that they are given in the same order in every run), kept up to date by the changes of the global state 
+    //(built when first needed, null if not built yet)
+    private transient List<List<NavigableMap<String, NodeInstance>>> providers;
+    //tables of the static topology the providers index is built on
+    private transient CompiledTopology providersTopology;
+    //view of the active instances given outside, whose changes drop the providers index
+    private transient Map<String, NodeInstance> activeInstancesView;
+
+    //server id -> number of runtime bindings served by the server, kept up to date by the changes of the
+    //global state (built when first needed, null if not built yet)
+    private transient Map<String, Integer> serverLoads;
+    //node -> capability slot -> active instances of the node currently offering the capability, sorted by 
+    //load (and then by id), kept up to date together with the providers index and the server loads (built 
+    //when first needed, null if not built yet)
+    private transient List<List<TreeSet<NodeInstance>>> loadedProviders;
+    //key -> value of the data kept by the pi strategies (e.g., the provider last chosen by the round robin pi 
+    //for each capability), null if no strategy kept data
+    private transient Map<String, String> strategyData;
+
+    //server id -> client id -> number of runtime bindings of the client served by the server, kept up to date
+    //by the changes of the global state (built when first needed, null if not built yet)
+    private transient Map<String, Map<String, Integer>> servedClients;
+    //container id -> ids of the instances it contains (by a containment runtime binding), kept up to date
+    //by the changes of the global state (built when first needed, null if not built yet)
+    private transient Map<String, Set<String>> containedInstances;
+    //view of the runtime bindings given outside, whose changes drop the indexes of the runtime bindings
+    private transient Map<String, List<RuntimeBinding>> runtimeBindingsView;
+    //tables of the static topology the slots of the runtime bindings refer to (null if to be slotted again)
+    private transient CompiledTopology bindingsTopology;
+
+    //instance id -> pending faults of the instance (only for the instances having some), and ids of the broken
+    //instances, kept up to date by checking again only the instances whose state, runtime bindings or servers 
+    //changed (built when first needed, null if not built yet)
+    private transient Map<String, List<Fault>> faultyInstances;
+    private transient Set<String> brokenInstanceIDs;
+    //ids of the instances whose pending faults and brokenness are to be checked again
+    private transient Set<String> dirtyInstances;
+
+    //instance id -> requirement slots satisfied by the runtime bindings of the instance, dropped when the runtime
+    //bindings of the instance or the state of one of its servers change (null if none is cached yet)
+    private transient Map<String, BitSet> satisfiedReqSlots;
+    //tables of the static topology the satisfied requirement slots refer to
+    private transient CompiledTopology satisfiedReqSlotsTopology;
 
     public GlobalState(Application app) throws NullPointerException{
         if(app == null)
@@ -19,17 +81,46 @@ public class GlobalState {
 
         this.app = app;
         this.activeInstances = new HashMap<String, NodeInstance>();
-        this.runtimeBindings = new HashMap<String, List<RuntimeBinding>>();
+        this.runtimeBindings = new HashMap<String, RuntimeBinding[]>();
     }
 
     public Application getApp() {
         return app;
     }
+    /**
+     * @return the runtime bindings (instance id -> runtime bindings of the instance, in the order of the slots
+     *         of their requirements), which can be changed, but not while iterating it (the lists of runtime 
+     *         bindings are not to be changed)
+     */
     public Map<String, List<RuntimeBinding>> getRuntimeBindings() {
-        return runtimeBindings;
+        if(this.runtimeBindingsView == null)
+            this.runtimeBindingsView = new RuntimeBindingsView();
+        return this.runtimeBindingsView;
     }   
+
+    //drops the indexes built on the runtime bindings (when they are changed from outside)
+    private void dropRuntimeBindingsIndexes(){
+        this.servedClients = null;
+        this.serverLoads = null;
+        this.loadedProviders = null;
+        this.containedInstances = null;
+        this.faultyInstances = null;
+        this.satisfiedReqSlots = null;
+    }
+    /**
+     * @return the active instances (instance id -> instance), which can be changed, but not while iterating it
+     */
     public Map<String, NodeInstance> getActiveInstances() {
-        return activeInstances;
+        if(this.activeInstancesView == null)
+            this.activeInstancesView = new ObservedMap<>(this.activeInstances, () -> {
+                this.providers = null;
+                this.loadedProviders = null;
+                this.faultyInstances = null;
+                this.satisfiedReqSlots = null;
+                //the runtime bindings of the instances becoming active are to be slotted
+                this.bindingsTopology = null;
+            });
+        return this.activeInstancesView;
     }
     public NodeInstance getNodeInstanceByID(String instanceID)
         throws
@@ -54,6 +145,296 @@ public class GlobalState {
         this.app = app;
     }
 
+    //############################ TRAIL ##############################
+
+    /**
+     * starts recording the changes of the global state, so that they can be undone
+     */
+    public void startTrail(){
+        if(this.trail == null)
+            this.trail = new ArrayList<>();
+    }
+
+    /**
+     * stops recording the changes of the global state (forgetting the recorded ones)
+     */
+    public void stopTrail(){
+        this.trail = null;
+    }
+
+    /**
+     * @return a mark of the current global state, to which it can be rolled back
+     * @throws NullPointerException if changes are not being recorded
+     */
+    public int mark() throws NullPointerException{
+        return this.trail.size();
+    }
+
+    /**
+     * @param mark a mark of a previous global state
+     * @throws NullPointerException if changes are not being recorded
+     */
+    public void rollback(int mark) throws NullPointerException{
+        while(this.trail.size() > mark)
+            this.trail.remove(this.trail.size() - 1).run();
+    }
+
+    private void record(Runnable undo){
+        if(this.trail != null)
+            this.trail.add(undo);
+    }
+
+    //######################### INSTANCES MANIPULATION ############################
+
+    /**
+     * @param instance active instance whose state changes
+     * @param state the new current state of the instance
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    public void setCurrentState(NodeInstance instance, String state)
+        throws 
+            NullPointerException, 
+            IllegalArgumentException
+    {
+        String oldState = instance.getCurrentState();
+        this.changeState(instance, state);
+        this.record(() -> this.changeState(instance, oldState));
+    }
+
+    private void changeState(NodeInstance instance, String state){
+        this.updateProviders(instance, false);
+        instance.setCurrentState(state);
+        this.updateProviders(instance, true);
+        //the needed requirements of the instance and the offered capabilities for its clients changed
+        this.touch(instance.getID());
+        this.touchClients(instance.getID());
+    }
+
+    /**
+     * @param instance new instance to add to the active instances (with no runtime bindings)
+     * @throws NullPointerException
+     */
+    public void addInstance(NodeInstance instance) throws NullPointerException{
+        if(instance == null)
+            throw new NullPointerException();
+
+        String instanceID = instance.getID();
+        this.activeInstances.put(instanceID, instance);
+        this.runtimeBindings.put(instanceID, this.toBindingSlots(instanceID, Collections.emptyList(), this.app.getTopology()));
+        this.updateProviders(instance, true);
+        this.touch(instanceID);
+        this.record(() -> {
+            this.updateProviders(instance, false);
+            this.activeInstances.remove(instanceID);
+            this.runtimeBindings.remove(instanceID);
+            this.touch(instanceID);
+        });
+    }
+
+    /**
+     * @param instanceID identifier of the instance to remove from the active instances (with its runtime bindings)
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @throws InstanceUnknownException
+     */
+    public void removeInstance(String instanceID)
+        throws 
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        this.removeInstance(this.getNodeInstanceByID(instanceID));
+    }
+
+    //as removeInstance(instanceID), for an instance already known to be active
+    void removeInstance(NodeInstance instance){
+        String instanceID = instance.getID();
+        this.updateProviders(instance, false);
+        RuntimeBinding[] instanceRuntimeBindings = this.runtimeBindings.remove(instanceID);
+        this.indexRuntimeBindings(instanceID, instanceRuntimeBindings, false);
+        this.activeInstances.remove(instanceID);
+        this.touch(instanceID);
+        this.touchClients(instanceID);
+        this.record(() -> {
+            this.activeInstances.put(instanceID, instance);
+            this.runtimeBindings.put(instanceID, instanceRuntimeBindings);
+            this.indexRuntimeBindings(instanceID, instanceRuntimeBindings, true);
+            this.updateProviders(instance, true);
+            this.touch(instanceID);
+            this.touchClients(instanceID);
+        });
+    }
+
+    //######################### PROVIDERS INDEX ############################
+
+    /**
+     * @param topology tables of the static topology of the application
+     * @param node index of a node
+     * @param reqSlot slot of a requirement of the node
+     * @return the active instances that can serve the requirement, that is, the instances of the node bound to the
+     *         requirement currently offering the bound capability, sorted by id (not to be modified)
+     */
+    Collection<NodeInstance> getProviders(CompiledTopology topology, int node, int reqSlot){
+        int boundNode = topology.getBoundNode(node, reqSlot);
+        if(boundNode == -1)
+            return Collections.emptyList();
+
+        return this.getProvidersIndex(topology).get(boundNode).get(topology.getBoundCap(node, reqSlot)).values();
+    }
+
+    /**
+     * @param topology tables of the static topology of the application
+     * @param node index of a node
+     * @param reqSlot slot of a requirement of the node
+     * @return the active instance serving the least runtime bindings among those that can serve the 
+     *         requirement (the one with the least id if more serve the least runtime bindings, null if none)
+     */
+    NodeInstance getLeastLoadedProvider(CompiledTopology topology, int node, int reqSlot){
+        int boundNode = topology.getBoundNode(node, reqSlot);
+        if(boundNode == -1)
+            return null;
+
+        List<List<NavigableMap<String, NodeInstance>>> providersIndex = this.getProvidersIndex(topology);
+        if(this.loadedProviders == null){
+            this.getServerLoads();
+            Comparator<NodeInstance> byLoad = Comparator
+                .comparingInt((NodeInstance instance) -> this.serverLoads.getOrDefault(instance.getID(), 0))
+                .thenComparing(NodeInstance::getID);
+
+            this.loadedProviders = new ArrayList<>();
+            for(List<NavigableMap<String, NodeInstance>> nodeProviders : providersIndex){
+                List<TreeSet<NodeInstance>> nodeLoadedProviders = new ArrayList<>();
+                for(NavigableMap<String, NodeInstance> capProviders : nodeProviders){
+                    TreeSet<NodeInstance> capLoadedProviders = new TreeSet<>(byLoad);
+                    capLoadedProviders.addAll(capProviders.values());
+                    nodeLoadedProviders.add(capLoadedProviders);
+                }
+                this.loadedProviders.add(nodeLoadedProviders);
+            }
+        }
+
+        TreeSet<NodeInstance> capLoadedProviders = this.loadedProviders.get(boundNode).get(topology.getBoundCap(node, reqSlot));
+        return !capLoadedProviders.isEmpty() ? capLoadedProviders.first() : null;
+    }
+
+    /**
+     * @param topology tables of the static topology of the application
+     * @param node index of a node
+     * @param reqSlot slot of a requirement of the node
+     * @param providerID identifier of an instance (null to get the first provider)
+     * @return the active instance following (by id) the given one among those that can serve the requirement
+     *         (the first one after the last, null if none)
+     */
+    NodeInstance getProviderAfter(CompiledTopology topology, int node, int reqSlot, String providerID){
+        int boundNode = topology.getBoundNode(node, reqSlot);
+        if(boundNode == -1)
+            return null;
+
+        NavigableMap<String, NodeInstance> capProviders = this.getProvidersIndex(topology).get(boundNode).get(topology.getBoundCap(node, reqSlot));
+        Map.Entry<String, NodeInstance> nextProvider = providerID != null ? capProviders.higherEntry(providerID) : null;
+        if(nextProvider == null)
+            nextProvider = capProviders.firstEntry();
+
+        return nextProvider != null ? nextProvider.getValue() : null;
+    }
+
+    /**
+     * @param key key of the data of a pi strategy
+     * @return the value of the data kept in the global state for the given key (null if none)
+     * @throws NullPointerException
+     */
+    public String getStrategyData(String key) throws NullPointerException {
+        if(key == null)
+            throw new NullPointerException();
+
+        return this.strategyData != null ? this.strategyData.get(key) : null;
+    }
+
+    /**
+     * keeps the data of a pi strategy in the global state, with which it is copied, compared, encoded and 
+     * rolled back (a value that is the id of an instance is renamed together with the instance by the 
+     * canonical encoding)
+     * @param key key of the data, to be prefixed by the strategy not to clash with the keys of the others
+     * @param value value of the data (null to remove it)
+     * @throws NullPointerException
+     */
+    public void setStrategyData(String key, String value) throws NullPointerException {
+        if(key == null)
+            throw new NullPointerException();
+        if(this.strategyData == null)
+            this.strategyData = new HashMap<>();
+
+        String oldValue = value != null ? this.strategyData.put(key, value) : this.strategyData.remove(key);
+        this.record(() -> {
+            if(oldValue != null)
+                this.strategyData.put(key, oldValue);
+            else
+                this.strategyData.remove(key);
+        });
+    }
+
+    //node -> capability slot -> active instances of the node currently offering the capability
+    private List<List<NavigableMap<String, NodeInstance>>> getProvidersIndex(CompiledTopology topology){
+        //the index is built again if the static topology changed
+        if(this.providers == null || this.providersTopology != topology){
+            this.providersTopology = topology;
+            this.loadedProviders = null;
+            this.providers = new ArrayList<>();
+            for(int indexedNode = 0; indexedNode < topology.getNodeCount(); indexedNode++){
+                List<NavigableMap<String, NodeInstance>> nodeProviders = new ArrayList<>();
+                for(int capSlot = 0; capSlot < topology.getCapCount(indexedNode); capSlot++)
+                    nodeProviders.add(new TreeMap<>());
+                this.providers.add(nodeProviders);
+            }
+            for(NodeInstance instance : this.activeInstances.values())
+                this.updateProviders(instance, true);
+        }
+        return this.providers;
+    }
+
+    //adds (or removes) an active instance to (from) the providers of the capabilities offered in its current state
+    private void updateProviders(NodeInstance instance, boolean offering){
+        if(this.providers == null || this.activeInstances.get(instance.getID()) != instance)
+            return;
+
+        CompiledTopology topology = this.providersTopology;
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int state = node != -1 ? topology.getStateIndex(node, instance.getCurrentState()) : -1;
+        if(state == -1)
+            return;
+
+        BitSet offeredCaps = topology.getOfferedCaps(node, state);
+        for(int capSlot = offeredCaps.nextSetBit(0); capSlot >= 0; capSlot = offeredCaps.nextSetBit(capSlot + 1)){
+            if(offering)
+                this.providers.get(node).get(capSlot).put(instance.getID(), instance);
+            else
+                this.providers.get(node).get(capSlot).remove(instance.getID());
+        }
+        this.updateLoadedProviders(instance, offering);
+    }
+
+    //adds (or removes) an active instance to (from) the providers sorted by load of the capabilities offered
+    //in its current state (to be removed before its load changes, and added again after)
+    private void updateLoadedProviders(NodeInstance instance, boolean offering){
+        if(this.loadedProviders == null || this.activeInstances.get(instance.getID()) != instance)
+            return;
+
+        CompiledTopology topology = this.providersTopology;
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int state = node != -1 ? topology.getStateIndex(node, instance.getCurrentState()) : -1;
+        if(state == -1)
+            return;
+
+        BitSet offeredCaps = topology.getOfferedCaps(node, state);
+        for(int capSlot = offeredCaps.nextSetBit(0); capSlot >= 0; capSlot = offeredCaps.nextSetBit(capSlot + 1)){
+            if(offering)
+                this.loadedProviders.get(node).get(capSlot).add(instance);
+            else
+                this.loadedProviders.get(node).get(capSlot).remove(instance);
+        }
+    }
+
     /**
      * @param instanceID id of the instance of which we want the satisfied requirement
      * @return list of requirements that are currently satisfied
@@ -67,33 +448,46 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
-        Node instanceType = this.getNodeInstanceByID(instanceID).getNodeType();
-        List<RuntimeBinding> instanceRuntimeBindings = this.runtimeBindings.get(instanceID);
-
-        List<Requirement> satisfiedReqs = new ArrayList<>();
-
-        for(RuntimeBinding rb : instanceRuntimeBindings){
-            NodeReq nodeReq = new NodeReq(instanceType.getName(), rb.getReq().getName());
-            NodeCap nodeCap = this.app.getBindingFunction().get(nodeReq);
-
-            //the binding is defined in the static topology
-            if(nodeCap != null){ 
-                NodeInstance server = this.getActiveInstances().get(rb.getNodeInstanceID());
-                //the server is actually active and wasnt killed
-                if(server != null){
-                    /**
-                     * the global state (the runtime state of the app) could not be correct
-                        * it is not enough to have a runtime binding to have a satisfied requirement
-                    */
-                    boolean serverRightType = nodeCap.getNodeName().equals(server.getNodeType().getName());
-                    boolean serverOfferingCap = server.getOfferedCaps().contains(nodeCap.getCap());
-
-                    if(serverOfferingCap && serverRightType)
-                        satisfiedReqs.add(rb.getReq());
-                }
+        this.getNodeInstanceByID(instanceID);
+        RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+
+        /**
+         * the global state (the runtime state of the app) could not be correct
+            * it is not enough to have a runtime binding to have a satisfied requirement
+            * the binding has to be defined in the static topology, and the server has to be 
+            * actually active (not killed), of the right type and offering the bound capability
+         * which is checked once per instance (and cached) by getSatisfiedReqSlots
+        */
+        BitSet satisfiedReqSlots = this.getSatisfiedReqSlots(instanceID);
+        List<Requirement> satisfiedReqs = new ArrayList<>(satisfiedReqSlots.cardinality());
+        for(int reqSlot = satisfiedReqSlots.nextSetBit(0); reqSlot != -1; reqSlot = satisfiedReqSlots.nextSetBit(reqSlot + 1))
+            satisfiedReqs.add(instanceRuntimeBindings[reqSlot].getReq());
+        return satisfiedReqs;
+    }
+
+    //requirement slots of an active instance satisfied by its runtime bindings (see getSatisfiedReqs),
+    //not to be modified
+    private BitSet getSatisfiedReqSlots(String instanceID){
+        CompiledTopology topology = this.app.getTopology();
+        if(this.satisfiedReqSlots == null || this.satisfiedReqSlotsTopology != topology){
+            this.satisfiedReqSlots = new HashMap<>();
+            this.satisfiedReqSlotsTopology = topology;
+        }
+
+        BitSet instanceSatisfiedReqSlots = this.satisfiedReqSlots.get(instanceID);
+        if(instanceSatisfiedReqSlots == null){
+            instanceSatisfiedReqSlots = new BitSet();
+            int node = topology.getNodeIndex(this.activeInstances.get(instanceID).getNodeType().getName());
+            RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+            for(int reqSlot = 0; node != -1 && reqSlot < instanceRuntimeBindings.length; reqSlot++){
+                RuntimeBinding rb = instanceRuntimeBindings[reqSlot];
+                NodeInstance server = rb != null ? this.activeInstances.get(rb.getNodeInstanceID()) : null;
+                if(server != null && topology.canServe(server, node, reqSlot))
+                    instanceSatisfiedReqSlots.set(reqSlot);
             }
+            this.satisfiedReqSlots.put(instanceID, instanceSatisfiedReqSlots);
         }
-        return satisfiedReqs;
+        return instanceSatisfiedReqSlots;
     }
 
     /**
@@ -110,25 +504,23 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {   
+        return this.getCapableInstances(this.getNodeInstanceByID(instanceID), req);
+    }
+
+    //as getCapableInstances(instanceID, req), for an instance already known to be active
+    List<NodeInstance> getCapableInstances(NodeInstance instance, Requirement req){
         List<NodeInstance> capableactiveInstances = new ArrayList<>();
 
-        NodeReq nodeReq = new NodeReq(this.getNodeInstanceByID(instanceID).getNodeType().getName(), req.getName());
-        NodeCap nodeCap = this.app.getBindingFunction().get(nodeReq);
-
-        if(nodeCap != null){            
-            /**
-             * among all the currently active activeInstances we check if the active instance is the right kind of node 
-             * and if it is currently offering the needed capability. If so the instance is a "capable instance", 
-             * whereas it could satisfy the requirement of the given instance
-             */
-            for(NodeInstance activeInstance : this.activeInstances.values()){
-                boolean instanceRightType = nodeCap.getNodeName().equals(activeInstance.getNodeType().getName());
-                boolean instanceOfferingCap = activeInstance.getOfferedCaps().contains(nodeCap.getCap());
-
-                if(instanceOfferingCap && instanceRightType)
-                    capableactiveInstances.add(activeInstance);
-            }
-        }
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, req.getName()) : -1;
+
+        /**
+         * the active instances of the right kind of node currently offering the needed capability are 
+         * "capable instances", whereas they could satisfy the requirement of the given instance
+         */
+        if(reqSlot != -1)
+            capableactiveInstances.addAll(this.getProviders(topology, node, reqSlot));
         return capableactiveInstances;
     }
 
@@ -147,24 +539,78 @@ public class GlobalState {
             InstanceUnknownException
     {
         //to check instance existance
-        this.getNodeInstanceByID(instanceID);
+        NodeInstance instance = this.getNodeInstanceByID(instanceID);
 
         if(req == null)
             throw new NullPointerException();
 
-        RuntimeBinding badBinding = null;
-        //this is the list of all <server instance, requirement handled by server instance>
-        List<RuntimeBinding> instanceRuntimeBindings = this.runtimeBindings.get(instanceID);
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, req.getName()) : -1;
+
+        //the only binding that can be about the target requirement is the one in the slot of the requirement
+        RuntimeBinding badBinding = reqSlot != -1 ? this.getBindingSlots(instanceID)[reqSlot] : null;
+        if(badBinding != null && badBinding.getReq().equals(req))
+            this.setRuntimeBinding(instanceID, reqSlot, null);
+    }
+
+    //sets (or clears, if rb is null) the runtime binding in a slot of an instance, replacing the one in the slot
+    private void setRuntimeBinding(String instanceID, int reqSlot, RuntimeBinding rb){
+        RuntimeBinding replacedBinding = this.placeRuntimeBinding(instanceID, reqSlot, rb);
+        this.record(() -> this.placeRuntimeBinding(instanceID, reqSlot, replacedBinding));
+    }
+
+    private RuntimeBinding placeRuntimeBinding(String instanceID, int reqSlot, RuntimeBinding rb){
+        RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+        RuntimeBinding replacedBinding = instanceRuntimeBindings[reqSlot];
+        instanceRuntimeBindings[reqSlot] = rb;
+        if(replacedBinding != null)
+            this.indexRuntimeBindings(instanceID, replacedBinding, false);
+        if(rb != null)
+            this.indexRuntimeBindings(instanceID, rb, true);
+        return replacedBinding;
+    }
 
-        for(RuntimeBinding runBinding : instanceRuntimeBindings){
-            //this binding is about the target requirement
-            if(runBinding.getReq().equals(req))
-                badBinding = runBinding;
+    private void clearRuntimeBindings(String instanceID){
+        RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+        for(int reqSlot = 0; reqSlot < instanceRuntimeBindings.length; reqSlot++){
+            if(instanceRuntimeBindings[reqSlot] != null)
+                this.setRuntimeBinding(instanceID, reqSlot, null);
         }
+    }
 
-        //cant make a remove inside an iterator
-        if(badBinding != null)
-            instanceRuntimeBindings.remove(badBinding);
+    //runtime bindings of an instance (null if none), slotted by the current tables of the static topology
+    private RuntimeBinding[] getBindingSlots(String instanceID){
+        this.slotRuntimeBindings();
+        return this.runtimeBindings.get(instanceID);
+    }
+
+    //places the runtime bindings in the slots given by the current tables of the static topology, if they changed
+    //(or if the runtime bindings were parsed or given outside before the instances became active)
+    private void slotRuntimeBindings(){
+        CompiledTopology topology = this.app.getTopology();
+        if(this.bindingsTopology != topology){
+            this.bindingsTopology = topology;
+            for(Map.Entry<String, RuntimeBinding[]> entry : this.runtimeBindings.entrySet())
+                entry.setValue(this.toBindingSlots(entry.getKey(), Arrays.asList(entry.getValue()), topology));
+        }
+    }
+
+    //runtime bindings of an instance placed in the slots of their requirements, which are kept as they are 
+    //if the instance is not active (bindings of requirements with no slot are dropped)
+    private RuntimeBinding[] toBindingSlots(String instanceID, Collection<RuntimeBinding> rbs, CompiledTopology topology){
+        NodeInstance instance = this.activeInstances.get(instanceID);
+        int node = instance != null ? topology.getNodeIndex(instance.getNodeType().getName()) : -1;
+        if(node == -1)
+            return rbs.toArray(new RuntimeBinding[0]);
+
+        RuntimeBinding[] instanceRuntimeBindings = new RuntimeBinding[topology.getReqCount(node)];
+        for(RuntimeBinding rb : rbs){
+            int reqSlot = rb != null ? topology.getReqSlot(node, rb.getReq().getName()) : -1;
+            if(reqSlot != -1)
+                instanceRuntimeBindings[reqSlot] = rb;
+        }
+        return instanceRuntimeBindings;
     }
 
     /**
@@ -180,11 +626,22 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
-        NodeInstance instance = this.getNodeInstanceByID(instanceID);
+        this.removeOldRuntimeBindings(this.getNodeInstanceByID(instanceID));
+    }
+
+    //as removeOldRuntimeBindings(instanceID), for an instance already known to be active
+    void removeOldRuntimeBindings(NodeInstance instance){
+        String instanceID = instance.getID();
         List<Requirement> neededReqs = instance.getNeededReqs();
-        for(Requirement satisfiedReq : this.getSatisfiedReqs(instanceID)){
-            if(!satisfiedReq.isContainment() && !neededReqs.contains(satisfiedReq))
-                this.removeRuntimeBinding(instanceID, satisfiedReq);
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        BitSet satisfiedReqSlots = this.getSatisfiedReqSlots(instanceID);
+
+        RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+        for(int reqSlot = 0; node != -1 && reqSlot < instanceRuntimeBindings.length; reqSlot++){
+            RuntimeBinding rb = instanceRuntimeBindings[reqSlot];
+            if(rb != null && satisfiedReqSlots.get(reqSlot) && !rb.getReq().isContainment() && !neededReqs.contains(rb.getReq()))
+                this.setRuntimeBinding(instanceID, reqSlot, null);
         }
     }
 
@@ -201,7 +658,7 @@ public class GlobalState {
             InstanceUnknownException
     {
         this.getNodeInstanceByID(instanceID);
-        this.runtimeBindings.get(instanceID).clear();
+        this.clearRuntimeBindings(instanceID);
     }
 
     /**
@@ -218,39 +675,153 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
-        this.getNodeInstanceByID(instanceID);
+        this.removeAllRuntimeBindingsBothWays(this.getNodeInstanceByID(instanceID));
+    }
+
+    //as removeAllRuntimeBindingsBothWays(instanceID), for an instance already known to be active
+    void removeAllRuntimeBindingsBothWays(NodeInstance instance){
+        String instanceID = instance.getID();
 
         //direct way: remove all the runtime bindings about the requirement of instance(ID)
-        this.runtimeBindings.get(instanceID).clear();
+        this.clearRuntimeBindings(instanceID);
 
         /**
          * reverse way: we remove all the runtkme bindings that have instance(ID) as a server of a capability
-         * for each active instance i we check all of its runtime binding, when
+         * only the clients of instance(ID) are checked (as given by the served clients index), and when 
          * we find a runtime binding that has instanceID as a server we remove the binding
          */
-        List<RuntimeBinding> badBindings = new ArrayList<>();
-        for(NodeInstance activeInstance : this.activeInstances.values()){
-            List<RuntimeBinding> activeInstanceRunBindings = this.runtimeBindings.get(activeInstance.getID());
+        Map<String, Integer> clients = this.getServedClients().get(instanceID);
+        if(clients == null)
+            return;
 
-            for(RuntimeBinding activeInsanceRunBinding : activeInstanceRunBindings){
+        for(String clientID : new ArrayList<>(clients.keySet())){
+            //the runtime bindings of killed instances are not considered
+            if(!this.activeInstances.containsKey(clientID))
+                continue;
+            RuntimeBinding[] clientRunBindings = this.getBindingSlots(clientID);
+
+            for(int reqSlot = 0; reqSlot < clientRunBindings.length; reqSlot++){
                 //instance(ID) is a server for another instance
-                if(activeInsanceRunBinding.getNodeInstanceID().equals(instanceID))
-                    badBindings.add(activeInsanceRunBinding);
+                if(clientRunBindings[reqSlot] != null && clientRunBindings[reqSlot].getNodeInstanceID().equals(instanceID))
+                    this.setRuntimeBinding(clientID, reqSlot, null);
+            }
+        }
+    }
+
+    /**
+     * @param containerID identifier of an instance
+     * @return the identifiers of the instances directly contained in instance(containerID), 
+     *         that is, bound to it by a containment runtime binding
+     */
+    public List<String> getContainedInstances(String containerID){
+        if(this.containedInstances == null){
+            this.containedInstances = new HashMap<>();
+            for(String clientID : this.runtimeBindings.keySet()){
+                for(RuntimeBinding rb : this.runtimeBindings.get(clientID)){
+                    if(rb != null)
+                        this.indexContainedInstance(clientID, rb, true);
+                }
+            }
+        }
+        Set<String> contained = this.containedInstances.get(containerID);
+        return contained != null ? new ArrayList<>(contained) : new ArrayList<>();
+    }
+
+    //server id -> client id -> number of runtime bindings of the client served by the server
+    private Map<String, Map<String, Integer>> getServedClients(){
+        if(this.servedClients == null){
+            this.servedClients = new HashMap<>();
+            for(String clientID : this.runtimeBindings.keySet()){
+                for(RuntimeBinding rb : this.runtimeBindings.get(clientID)){
+                    if(rb != null)
+                        this.indexServedClient(clientID, rb, true);
+                }
             }
+        }
+        return this.servedClients;
+    }
 
-            for(RuntimeBinding badBinding : badBindings)
-                activeInstanceRunBindings.remove(badBinding);
-                
-            badBindings.clear();
+    //server id -> number of runtime bindings served by the server
+    private Map<String, Integer> getServerLoads(){
+        if(this.serverLoads == null){
+            this.serverLoads = new HashMap<>();
+            for(RuntimeBinding[] clientRunBindings : this.runtimeBindings.values()){
+                for(RuntimeBinding rb : clientRunBindings){
+                    if(rb != null)
+                        this.serverLoads.merge(rb.getNodeInstanceID(), 1, Integer::sum);
+                }
+            }
+        }
+        return this.serverLoads;
+    }
+
+    //adds (or removes) a runtime binding of a client to (from) the (built) indexes of the runtime bindings
+    private void indexRuntimeBindings(String clientID, RuntimeBinding rb, boolean bound){
+        this.touch(clientID);
+        if(this.servedClients != null)
+            this.indexServedClient(clientID, rb, bound);
+        if(this.containedInstances != null)
+            this.indexContainedInstance(clientID, rb, bound);
+        if(this.serverLoads != null)
+            this.indexServerLoad(rb, bound);
+    }
+
+    private void indexServerLoad(RuntimeBinding rb, boolean bound){
+        //the server is sorted again among the providers sorted by load, as its load changes
+        NodeInstance server = this.activeInstances.get(rb.getNodeInstanceID());
+        if(server != null)
+            this.updateLoadedProviders(server, false);
+
+        int load = this.serverLoads.getOrDefault(rb.getNodeInstanceID(), 0) + (bound ? 1 : -1);
+        if(load > 0)
+            this.serverLoads.put(rb.getNodeInstanceID(), load);
+        else
+            this.serverLoads.remove(rb.getNodeInstanceID());
+
+        if(server != null)
+            this.updateLoadedProviders(server, true);
+    }
+
+    private void indexServedClient(String clientID, RuntimeBinding rb, boolean bound){
+        Map<String, Integer> clients = this.servedClients.computeIfAbsent(rb.getNodeInstanceID(), serverID -> new HashMap<>());
+        int bindings = clients.getOrDefault(clientID, 0) + (bound ? 1 : -1);
+        if(bindings > 0)
+            clients.put(clientID, bindings);
+        else
+            clients.remove(clientID);
+        if(clients.isEmpty())
+            this.servedClients.remove(rb.getNodeInstanceID());
+    }
+
+    private void indexContainedInstance(String clientID, RuntimeBinding rb, boolean bound){
+        if(!rb.getReq().isContainment())
+            return;
+
+        Set<String> contained = this.containedInstances.computeIfAbsent(rb.getNodeInstanceID(), containerID -> new HashSet<>());
+        if(bound)
+            contained.add(clientID);
+        else
+            contained.remove(clientID);
+        if(contained.isEmpty())
+            this.containedInstances.remove(rb.getNodeInstanceID());
+    }
+
+    private void indexRuntimeBindings(String clientID, RuntimeBinding[] rbs, boolean bound){
+        if(rbs != null){
+            for(RuntimeBinding rb : rbs){
+                if(rb != null)
+                    this.indexRuntimeBindings(clientID, rb, bound);
+            }
         }
     }
 
     /**
      * @param instanceID the identifier of the instance to which add a runtime binding
      * @param req the requirement of which the binding is about
-     * @param serverID the identifier of the instance that satisfy the requirement
+     * @param serverID the identifier of the instance that satisfy the requirement (replacing the instance
+     *        currently satisfying it, if any)
      * @throws NullPointerException
-     * @throws IllegalArgumentException
+     * @throws IllegalArgumentException if the requirement is not a requirement of the node of the instance
      * @throws InstanceUnknownException
      */
     public void addRuntimeBinding(String instanceID, Requirement req, String serverID)
@@ -259,12 +830,26 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
-        this.getNodeInstanceByID(instanceID);
-        this.getNodeInstanceByID(serverID);
+        NodeInstance instance = this.getNodeInstanceByID(instanceID);
+        NodeInstance server = this.getNodeInstanceByID(serverID);
         if(req == null)
             throw new NullPointerException();
-            
-        this.runtimeBindings.get(instanceID).add(new RuntimeBinding(req, serverID));
+
+        this.addRuntimeBinding(instance, req, server);
+    }
+
+    //as addRuntimeBinding(instanceID, req, serverID), for instances already known to be active
+    void addRuntimeBinding(NodeInstance instance, Requirement req, NodeInstance server)
+        throws
+            IllegalArgumentException
+    {
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, req.getName()) : -1;
+        if(reqSlot == -1)
+            throw new IllegalArgumentException();
+
+        this.setRuntimeBinding(instance.getID(), reqSlot, new RuntimeBinding(req, server.getID()));
     }
 
     /**
@@ -279,16 +864,27 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
-        NodeInstance instance = this.getNodeInstanceByID(instanceID);
-        List<Requirement> satisfiedReq = this.getSatisfiedReqs(instanceID);
+        this.addNewRuntimeBindings(this.getNodeInstanceByID(instanceID));
+    }
+
+    //as addNewRuntimeBindings(instanceID), for an instance already known to be active
+    void addNewRuntimeBindings(NodeInstance instance)
+        throws
+            InstanceUnknownException
+    {
+        String instanceID = instance.getID();
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        BitSet satisfiedReqSlots = this.getSatisfiedReqSlots(instanceID);
 
         for(Requirement neededReq : instance.getNeededReqs()){
+            int reqSlot = node != -1 ? topology.getReqSlot(node, neededReq.getName()) : -1;
             //the needed requirement is not containmenet and it is not satisfied
-            if(!neededReq.isContainment() && !satisfiedReq.contains(neededReq)){
-                NodeInstance server = this.app.pi(instanceID, neededReq);
+            if(!neededReq.isContainment() && (reqSlot == -1 || !satisfiedReqSlots.get(reqSlot))){
+                NodeInstance server = this.app.pi(instance, neededReq);
                 //we satisfy what we can, but it is possible to have some not satisfied reqs
                 if(server != null)
-                    this.addRuntimeBinding(instanceID, neededReq, server.getID());
+                    this.addRuntimeBinding(instance, neededReq, server);
             }
         }
     }
@@ -310,28 +906,86 @@ public class GlobalState {
         NodeInstance instance = this.getNodeInstanceByID(instanceID);
         List<Fault> pendingFaults = new ArrayList<>();
 
+        //the satisfied requirements are computed once (and cached), not for each needed requirement
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        BitSet satisfiedReqSlots = this.getSatisfiedReqSlots(instanceID);
+
         //for each needed requirement (non containment), if it is not satisfied we have a fault
         for(Requirement neededReq : instance.getNeededReqs()){
-            // if(!neededReq.isContainment() && !this.getSatisfiedReqs(instanceID).contains(neededReq))
-            //     pendingFaults.add(new Fault(instanceID, neededReq));
-
             if(!neededReq.isContainment()){
-                boolean satisfied = false;
-                for(Requirement r : this.getSatisfiedReqs(instanceID)){
-                    if(r.getName().equals(neededReq.getName()))
-                        satisfied = true;
-                }
-
-                if(!satisfied)
+                int reqSlot = node != -1 ? topology.getReqSlot(node, neededReq.getName()) : -1;
+                if(reqSlot == -1 || !satisfiedReqSlots.get(reqSlot))
                     pendingFaults.add(new Fault(instanceID, neededReq));
-
             }
-
         }
 
         return pendingFaults;
     }
 
+    /**
+     * @param instanceID identifier of the instance
+     * @return true if the instance has pending faults (as getPendingFaults, but without building them)
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @throws InstanceUnknownException
+     */
+    public boolean hasPendingFaults(String instanceID)
+        throws
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        return this.hasPendingFaults(this.getNodeInstanceByID(instanceID));
+    }
+
+    //as hasPendingFaults(instanceID), for an instance already known to be active
+    boolean hasPendingFaults(NodeInstance instance){
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        BitSet satisfiedReqSlots = this.getSatisfiedReqSlots(instance.getID());
+
+        for(Requirement neededReq : instance.getNeededReqs()){
+            if(!neededReq.isContainment()){
+                int reqSlot = node != -1 ? topology.getReqSlot(node, neededReq.getName()) : -1;
+                if(reqSlot == -1 || !satisfiedReqSlots.get(reqSlot))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if there are pending faults in the global state
+     */
+    public boolean hasPendingFaults()
+        throws
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        this.checkDirtyInstances();
+        return !this.faultyInstances.isEmpty();
+    }
+
+    /**
+     * @param fault a fault
+     * @return true if fault is a pending fault of the global state (without building the list of pending faults)
+     */
+    public boolean isPendingFault(Fault fault)
+        throws
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        if(fault == null)
+            throw new NullPointerException();
+
+        this.checkDirtyInstances();
+        List<Fault> instancePendingFaults = this.faultyInstances.get(fault.getNodeInstanceID());
+        return instancePendingFaults != null && instancePendingFaults.contains(fault);
+    }
+
     /**
      * @return list of all the pending faults in the global state
      */
@@ -341,14 +995,66 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
+        this.checkDirtyInstances();
         List<Fault> pendingFaults = new ArrayList<>();
 
-        for(NodeInstance activeInstance : this.activeInstances.values())
-            pendingFaults.addAll(this.getPendingFaults(activeInstance.getID()));
+        for(List<Fault> instancePendingFaults : this.faultyInstances.values())
+            pendingFaults.addAll(instancePendingFaults);
 
         return pendingFaults;
     }
 
+    //marks an instance as to be checked again for pending faults and brokenness (and satisfied requirements)
+    private void touch(String instanceID){
+        if(this.faultyInstances != null)
+            this.dirtyInstances.add(instanceID);
+        if(this.satisfiedReqSlots != null)
+            this.satisfiedReqSlots.remove(instanceID);
+    }
+
+    //marks the clients of an instance as to be checked again for pending faults and brokenness 
+    //(and satisfied requirements)
+    private void touchClients(String serverID){
+        if(this.faultyInstances == null && (this.satisfiedReqSlots == null || this.satisfiedReqSlots.isEmpty()))
+            return;
+
+        Map<String, Integer> clients = this.getServedClients().get(serverID);
+        if(clients != null){
+            for(String clientID : clients.keySet())
+                this.touch(clientID);
+        }
+    }
+
+    //checks again the pending faults and brokenness of the dirty instances (of all instances the first time)
+    private void checkDirtyInstances()
+        throws
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        if(this.faultyInstances == null){
+            this.faultyInstances = new HashMap<>();
+            this.brokenInstanceIDs = new HashSet<>();
+            this.dirtyInstances = new HashSet<>(this.activeInstances.keySet());
+        }
+
+        for(String instanceID : this.dirtyInstances){
+            this.faultyInstances.remove(instanceID);
+            this.brokenInstanceIDs.remove(instanceID);
+            //killed instances have no faults
+            NodeInstance instance = this.activeInstances.get(instanceID);
+            if(instance == null)
+                continue;
+
+            //(the pending faults are built only for the faulty instances)
+            if(this.hasPendingFaults(instance))
+                this.faultyInstances.put(instanceID, this.getPendingFaults(instanceID));
+            if(this.isBrokenInstance(instance))
+                this.brokenInstanceIDs.add(instanceID);
+        }
+        this.dirtyInstances.clear();
+    }
+
     /**
      * @param instanceID identifier of the instance of which we want to know if it is a broken instance
      * @return true if the container of the instance is not active (hence instance is broken)
@@ -363,7 +1069,11 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
-        NodeInstance instance = this.getNodeInstanceByID(instanceID);
+        return this.isBrokenInstance(this.getNodeInstanceByID(instanceID));
+    }
+
+    //as isBrokenInstance(instanceID), for an instance already known to be active
+    boolean isBrokenInstance(NodeInstance instance){
         Requirement containmentReq = null;
 
         for(Requirement req : instance.getNodeType().getReqs()){
@@ -375,15 +1085,18 @@ public class GlobalState {
         if(containmentReq == null)
             return false;
 
-        List<RuntimeBinding> instanceRuntimeBindings = this.runtimeBindings.get(instanceID);
-        for(RuntimeBinding runtimeBinding : instanceRuntimeBindings){
-            if(runtimeBinding.getReq().equals(containmentReq)){
-                //destroyed container
-                if(this.activeInstances.get(runtimeBinding.getNodeInstanceID()) == null)
-                    return true;
-                else
-                    return false;
-            }
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, containmentReq.getName()) : -1;
+
+        //the vertical binding of instance is in the slot of the containment requirement
+        RuntimeBinding runtimeBinding = reqSlot != -1 ? this.getBindingSlots(instance.getID())[reqSlot] : null;
+        if(runtimeBinding != null && runtimeBinding.getReq().equals(containmentReq)){
+            //destroyed container
+            if(this.activeInstances.get(runtimeBinding.getNodeInstanceID()) == null)
+                return true;
+            else
+                return false;
         }
         //if here, no vertical binding was involving instance, which is hence broken
         return true;
@@ -400,15 +1113,31 @@ public class GlobalState {
             IllegalArgumentException, 
             InstanceUnknownException
     {
+        this.checkDirtyInstances();
         List<NodeInstance> brokenInstances = new ArrayList<>();
 
-        for(NodeInstance instance : this.activeInstances.values())
-            if(this.isBrokenInstance(instance.getID()))
-                brokenInstances.add(instance);
+        for(String brokenInstanceID : this.brokenInstanceIDs)
+            brokenInstances.add(this.activeInstances.get(brokenInstanceID));
 
         return brokenInstances;
     }
 
+    /**
+     * @return the first of the broken instances given by getBrokenInstances (null if none), without building 
+     *         the list of broken instances
+     */
+    public NodeInstance getBrokenInstance() 
+        throws
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        this.checkDirtyInstances();
+        if(this.brokenInstanceIDs.isEmpty())
+            return null;
+        return this.activeInstances.get(this.brokenInstanceIDs.iterator().next());
+    }
+
     /**
      * @param fault the fault that we want to know if it is resolvable
      * @return true if the fault is resolvableß
@@ -431,22 +1160,12 @@ public class GlobalState {
         if(!fault.getReq().isReplicaUnaware())
             return false;
 
-        NodeReq nodeReq = new NodeReq(instance.getNodeType().getName(), fault.getReq().getName());
-        NodeCap nodeCap = this.app.getBindingFunction().get(nodeReq);
-
-        if(nodeCap != null){
-            for(NodeInstance activeInstance : this.activeInstances.values()){
-                
-                boolean instanceRightType = nodeCap.getNodeName().equals(activeInstance.getNodeType().getName());
-                boolean instanceOfferingCap = activeInstance.getOfferedCaps().contains(nodeCap.getCap());
+        CompiledTopology topology = this.app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, fault.getReq().getName()) : -1;
 
-                //found at least one node instance that can resolve the fault
-                if(instanceOfferingCap && instanceRightType)
-                    return true;
-                
-            }
-        }
-        return false;
+        //there is at least one node instance that can resolve the fault
+        return reqSlot != -1 && !this.getProviders(topology, node, reqSlot).isEmpty();
     }
 
     /**
@@ -491,6 +1210,238 @@ public class GlobalState {
         return resolvableFaults;
     }
 
+    /**
+     * @param app the application the copy of the global state belongs to
+     * @return a copy of the global state, where node instances are copied whilst (immutable) runtime 
+     *         bindings are shared
+     */
+    public GlobalState clone(Application app){
+        GlobalState clonedGS = new GlobalState(app);
+
+        for(NodeInstance activeInstance : this.activeInstances.values()){
+            NodeInstance clonedInstance = new NodeInstance(
+                activeInstance.getNodeType(), 
+                activeInstance.getCurrentState(), 
+                activeInstance.getID()
+            );
+            clonedGS.activeInstances.put(clonedInstance.getID(), clonedInstance);
+        }
+
+        //(slot arrays are copied, sharing the slots of the runtime bindings)
+        this.slotRuntimeBindings();
+        for(String instanceID : this.runtimeBindings.keySet())
+            clonedGS.runtimeBindings.put(instanceID, this.runtimeBindings.get(instanceID).clone());
+        clonedGS.bindingsTopology = this.bindingsTopology;
+        if(this.strategyData != null)
+            clonedGS.strategyData = new HashMap<>(this.strategyData);
+
+        //(immutable) faults and satisfied requirement slots are shared
+        if(this.satisfiedReqSlots != null){
+            clonedGS.satisfiedReqSlots = new HashMap<>(this.satisfiedReqSlots);
+            clonedGS.satisfiedReqSlotsTopology = this.satisfiedReqSlotsTopology;
+        }
+        if(this.faultyInstances != null){
+            clonedGS.faultyInstances = new HashMap<>(this.faultyInstances);
+            clonedGS.brokenInstanceIDs = new HashSet<>(this.brokenInstanceIDs);
+            clonedGS.dirtyInstances = new HashSet<>(this.dirtyInstances);
+        }
+
+        return clonedGS;
+    }
+
+    /**
+     * @return a canonical representation of the global state, that is, the active instances (sorted by id)
+     *         with their node type, current state and runtime bindings (in slot order), so that
+     *         global states with the same content have the same fingerprint
+     */
+    public String getFingerprint(){
+        return this.getFingerprint(instanceID -> instanceID);
+    }
+
+    /**
+     * @param fixedIDs ids of the instances whose name matters (e.g., those referred by the actions to analyse)
+     * @return a canonical representation of the global state up to renaming the instances whose id is not in 
+     *         fixedIDs, so that global states only differing for how such instances are named (e.g., replicas 
+     *         of a node created in different orders) have the same canonical fingerprint
+     * @throws NullPointerException
+     */
+    public String getCanonicalFingerprint(Set<String> fixedIDs) throws NullPointerException {
+        if(fixedIDs == null)
+            throw new NullPointerException();
+
+        return this.getFingerprint(this.getCanonicalNaming(fixedIDs));
+    }
+
+    /**
+     * @param encoder encoder of the names in the global state (the same for all the global states to compare)
+     * @return a compact encoding of the global state, so that global states with the same fingerprint 
+     *         have equal encodings
+     * @throws NullPointerException
+     */
+    public EncodedGlobalState encode(GlobalStateEncoder encoder) throws NullPointerException {
+        if(encoder == null)
+            throw new NullPointerException();
+
+        return this.encode(encoder, instanceID -> instanceID);
+    }
+
+    /**
+     * @param encoder encoder of the names in the global state (the same for all the global states to compare)
+     * @param fixedIDs ids of the instances whose name matters
+     * @return a compact encoding of the global state, so that global states with the same canonical 
+     *         fingerprint have equal encodings
+     * @throws NullPointerException
+     */
+    public EncodedGlobalState encodeCanonical(GlobalStateEncoder encoder, Set<String> fixedIDs) throws NullPointerException {
+        if(encoder == null || fixedIDs == null)
+            throw new NullPointerException();
+
+        return this.encode(encoder, this.getCanonicalNaming(fixedIDs));
+    }
+
+    //names the instances not in fixedIDs after their position when sorted by signature
+    private UnaryOperator<String> getCanonicalNaming(Set<String> fixedIDs){
+        //instance id -> name of the instance in the canonical fingerprint
+        Map<String, String> names = new HashMap<>();
+        //anonymous instance id -> what the instance is (and what it is bound to)
+        Map<String, String> signatures = new HashMap<>();
+
+        for(NodeInstance instance : this.activeInstances.values()){
+            if(fixedIDs.contains(instance.getID())){
+                names.put(instance.getID(), instance.getID());
+                continue;
+            }
+
+            //(runtime bindings are in slot order, which is the same for all the instances of a node)
+            StringBuilder signature = new StringBuilder(this.getSignatureLabel(instance.getID(), fixedIDs));
+            RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instance.getID());
+            if(instanceRuntimeBindings != null){
+                for(RuntimeBinding rb : instanceRuntimeBindings){
+                    if(rb != null)
+                        signature
+                            .append('\u0001').append(rb.getReq().getName())
+                            .append('\u0002').append(this.getSignatureLabel(rb.getNodeInstanceID(), fixedIDs));
+                }
+            }
+
+            signatures.put(instance.getID(), signature.toString());
+        }
+
+        //(ties are broken by id, which only makes some symmetric global states look different)
+        List<String> anonymousIDs = new ArrayList<>(signatures.keySet());
+        anonymousIDs.sort(Comparator.comparing((String instanceID) -> signatures.get(instanceID)).thenComparing(instanceID -> instanceID));
+        for(int i = 0; i < anonymousIDs.size(); i++)
+            names.put(anonymousIDs.get(i), "\u0003" + i);
+
+        return instanceID -> names.getOrDefault(instanceID, instanceID);
+    }
+
+    //label of an instance in the signatures of the anonymous instances, only telling what an anonymous instance is
+    private String getSignatureLabel(String instanceID, Set<String> fixedIDs){
+        NodeInstance instance = this.activeInstances.get(instanceID);
+        if(fixedIDs.contains(instanceID) || instance == null)
+            return instanceID;
+        return '\u0003' + instance.getNodeTypeName() + '\u0003' + instance.getCurrentState();
+    }
+
+    //encoding of the global state where each instance is named as given by naming
+    private EncodedGlobalState encode(GlobalStateEncoder encoder, UnaryOperator<String> naming){
+        List<String> instanceIDs = new ArrayList<>(this.activeInstances.keySet());
+
+        //instances are sorted by the code of their name (kept in the upper bits, with their index in the lower ones)
+        long[] sortedInstances = new long[instanceIDs.size()];
+        int size = 0;
+        for(int i = 0; i < instanceIDs.size(); i++){
+            sortedInstances[i] = ((long) encoder.getCode(naming.apply(instanceIDs.get(i))) << 32) | i;
+            size += 4 + 2 * this.countRuntimeBindings(this.getBindingSlots(instanceIDs.get(i)));
+        }
+        Arrays.sort(sortedInstances);
+        Map<String, String> sortedStrategyData = this.getSortedStrategyData();
+        if(!sortedStrategyData.isEmpty())
+            size += 1 + 2 * sortedStrategyData.size();
+
+        int[] codes = new int[size];
+        int position = 0;
+        for(long sortedInstance : sortedInstances){
+            String instanceID = instanceIDs.get((int) sortedInstance);
+            NodeInstance instance = this.activeInstances.get(instanceID);
+            RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+
+            codes[position++] = (int) (sortedInstance >>> 32);
+            codes[position++] = encoder.getCode(instance.getNodeTypeName());
+            codes[position++] = encoder.getCode(instance.getCurrentState());
+            codes[position++] = this.countRuntimeBindings(instanceRuntimeBindings);
+
+            //runtime bindings are in slot order, which is canonical
+            if(instanceRuntimeBindings != null){
+                for(RuntimeBinding rb : instanceRuntimeBindings){
+                    if(rb != null){
+                        codes[position++] = encoder.getCode(rb.getReq().getName());
+                        codes[position++] = encoder.getCode(naming.apply(rb.getNodeInstanceID()));
+                    }
+                }
+            }
+        }
+
+        //the data of the pi strategies (if any) follow a marker that is not a code
+        if(!sortedStrategyData.isEmpty()){
+            codes[position++] = -1;
+            for(Map.Entry<String, String> data : sortedStrategyData.entrySet()){
+                codes[position++] = encoder.getCode(data.getKey());
+                codes[position++] = encoder.getCode(naming.apply(data.getValue()));
+            }
+        }
+        return new EncodedGlobalState(codes);
+    }
+
+    //data of the pi strategies, sorted by key
+    private Map<String, String> getSortedStrategyData(){
+        return this.strategyData != null ? new TreeMap<>(this.strategyData) : Collections.emptyMap();
+    }
+
+    //number of runtime bindings in the slots of an instance
+    private int countRuntimeBindings(RuntimeBinding[] instanceRuntimeBindings){
+        int count = 0;
+        if(instanceRuntimeBindings != null){
+            for(RuntimeBinding rb : instanceRuntimeBindings){
+                if(rb != null)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    //fingerprint of the global state where each instance is named as given by naming
+    private String getFingerprint(UnaryOperator<String> naming){
+        List<String> instanceIDs = new ArrayList<>(this.activeInstances.keySet());
+        instanceIDs.sort(Comparator.comparing(naming));
+
+        StringBuilder fingerprint = new StringBuilder();
+
+        for(String instanceID : instanceIDs){
+            NodeInstance instance = this.activeInstances.get(instanceID);
+            fingerprint
+                .append(naming.apply(instanceID)).append('\u0001')
+                .append(instance.getNodeTypeName()).append('\u0001')
+                .append(instance.getCurrentState()).append('\u0001');
+
+            //runtime bindings are in slot order, which is canonical
+            RuntimeBinding[] instanceRuntimeBindings = this.getBindingSlots(instanceID);
+            if(instanceRuntimeBindings != null){
+                for(RuntimeBinding rb : instanceRuntimeBindings){
+                    if(rb != null)
+                        fingerprint.append(rb.getReq().getName()).append('\u0002').append(naming.apply(rb.getNodeInstanceID())).append('\u0001');
+                }
+            }
+
+            fingerprint.append('\u0000');
+        }
+
+        for(Map.Entry<String, String> data : this.getSortedStrategyData().entrySet())
+            fingerprint.append('\u0004').append(data.getKey()).append('\u0002').append(naming.apply(data.getValue())).append('\u0001');
+        return fingerprint.toString();
+    }
+
     @Override
     public boolean equals(Object obj){
         GlobalState check = (GlobalState) obj;
@@ -498,11 +1449,130 @@ public class GlobalState {
         //dont need to check if the application is the same
         //it could be usefull to see if two different app have equals gs
 
-        return 
-            this.activeInstances.equals(check.activeInstances) &&
-            this.runtimeBindings.equals(check.runtimeBindings)
-        ;
+        if(!this.activeInstances.equals(check.activeInstances) || !this.runtimeBindings.keySet().equals(check.runtimeBindings.keySet()))
+            return false;
+
+        //runtime bindings are compared in slot order
+        for(String instanceID : this.runtimeBindings.keySet()){
+            if(!this.getRuntimeBindings().get(instanceID).equals(check.getRuntimeBindings().get(instanceID)))
+                return false;
+        }
+        return this.getSortedStrategyData().equals(check.getSortedStrategyData());
+    }
 
+    /**
+     * view of the runtime bindings, giving the runtime bindings of each instance as a list in slot order, 
+     * and dropping the indexes of the runtime bindings when it is changed (the collections it gives are 
+     * not modifiable)
+     */
+    private class RuntimeBindingsView extends AbstractMap<String, List<RuntimeBinding>> {
+
+        @Override
+        public List<RuntimeBinding> get(Object key){
+            RuntimeBinding[] instanceRuntimeBindings = key instanceof String ? GlobalState.this.getBindingSlots((String) key) : null;
+            if(instanceRuntimeBindings == null)
+                return null;
+
+            List<RuntimeBinding> rbs = new ArrayList<>();
+            for(RuntimeBinding rb : instanceRuntimeBindings){
+                if(rb != null)
+                    rbs.add(rb);
+            }
+            return Collections.unmodifiableList(rbs);
+        }
+        @Override
+        public boolean containsKey(Object key){
+            return GlobalState.this.runtimeBindings.containsKey(key);
+        }
+        @Override
+        public int size(){
+            return GlobalState.this.runtimeBindings.size();
+        }
+        @Override
+        public List<RuntimeBinding> put(String instanceID, List<RuntimeBinding> rbs){
+            GlobalState.this.dropRuntimeBindingsIndexes();
+            List<RuntimeBinding> replaced = this.get(instanceID);
+            GlobalState.this.runtimeBindings.put(instanceID, GlobalState.this.toBindingSlots(instanceID, rbs, GlobalState.this.app.getTopology()));
+            return replaced;
+        }
+        @Override
+        public List<RuntimeBinding> remove(Object key){
+            GlobalState.this.dropRuntimeBindingsIndexes();
+            List<RuntimeBinding> removed = this.get(key);
+            GlobalState.this.runtimeBindings.remove(key);
+            return removed;
+        }
+        @Override
+        public void clear(){
+            GlobalState.this.dropRuntimeBindingsIndexes();
+            GlobalState.this.runtimeBindings.clear();
+        }
+        @Override
+        public Set<String> keySet(){
+            return Collections.unmodifiableSet(GlobalState.this.runtimeBindings.keySet());
+        }
+        @Override
+        public Set<Map.Entry<String, List<RuntimeBinding>>> entrySet(){
+            Map<String, List<RuntimeBinding>> entries = new HashMap<>();
+            for(String instanceID : GlobalState.this.runtimeBindings.keySet())
+                entries.put(instanceID, this.get(instanceID));
+            return Collections.unmodifiableMap(entries).entrySet();
+        }
+    }
+
+    /**
+     * view of a map of the global state, notifying when it is changed through the view 
+     * (the collections it gives are not modifiable)
+     */
+    private static class ObservedMap<K, V> extends AbstractMap<K, V> {
+
+        private final Map<K, V> map;
+        private final Runnable onChange;
+
+        public ObservedMap(Map<K, V> map, Runnable onChange){
+            this.map = map;
+            this.onChange = onChange;
+        }
+
+        @Override
+        public V get(Object key){
+            return this.map.get(key);
+        }
+        @Override
+        public boolean containsKey(Object key){
+            return this.map.containsKey(key);
+        }
+        @Override
+        public int size(){
+            return this.map.size();
+        }
+        @Override
+        public V put(K key, V value){
+            this.onChange.run();
+            return this.map.put(key, value);
+        }
+        @Override
+        public V remove(Object key){
+            this.onChange.run();
+            return this.map.remove(key);
+        }
+        @Override
+        public void clear(){
+            this.onChange.run();
+            this.map.clear();
+        }
+        @Override
+        public Set<K> keySet(){
+            return Collections.unmodifiableSet(this.map.keySet());
+        }
+        @Override
+        public Collection<V> values(){
+            return Collections.unmodifiableCollection(this.map.values());
+        }
+        @Override
+        public Set<Map.Entry<K, V>> entrySet(){
+            return Collections.unmodifiableMap(this.map).entrySet();
+        }
     }
 
 }
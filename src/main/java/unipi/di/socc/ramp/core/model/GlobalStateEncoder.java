@@ -0,0 +1,42 @@
+package unipi.di.socc.ramp.core.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * interns the names appearing in global states (instance ids, node types, states and requirements) 
+ * as ints, so that global states can be encoded compactly (see GlobalState.encode)
+    * encoded global states can be compared only if they were encoded by the same encoder
+    * an encoder can be shared by different threads
+ */
+public class GlobalStateEncoder {
+
+    //name -> its code
+    private final Map<String, Integer> codes;
+
+    public GlobalStateEncoder(){
+        this.codes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param name a name appearing in a global state
+     * @return the code of name (codes are given in order of first request, starting from 0)
+     * @throws NullPointerException
+     */
+    public int getCode(String name) throws NullPointerException {
+        Integer code = this.codes.get(name);
+        if(code != null)
+            return code;
+
+        synchronized(this.codes){
+            return this.codes.computeIfAbsent(name, k -> this.codes.size());
+        }
+    }
+
+    /**
+     * @return the number of interned names
+     */
+    public int size(){
+        return this.codes.size();
+    }
+}
@@ -0,0 +1,40 @@
+package unipi.di.socc.ramp.core.model;
+
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+/**
+ * pi choosing, among the instances that can satisfy a requirement, the one serving the least runtime 
+ * bindings (the one with the least id, if more serve the least runtime bindings), as given by the loads 
+ * indexed by the global state (see PiVersion.LEAST_LOADED)
+ */
+class LeastLoadedPi implements PiStrategy {
+
+    @Override
+    public NodeInstance pi(Application app, String instanceID, Requirement req)
+        throws 
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        NodeInstance instance = app.getGlobalState().getNodeInstanceByID(instanceID);
+        if(req == null)
+            throw new NullPointerException();
+
+        return this.pi(app, instance, req);
+    }
+
+    @Override
+    public NodeInstance pi(Application app, NodeInstance instance, Requirement req){
+        CompiledTopology topology = app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, req.getName()) : -1;
+
+        //the providers of the capability bound to req are kept sorted by load
+        return reqSlot != -1 ? app.getGlobalState().getLeastLoadedProvider(topology, node, reqSlot) : null;
+    }
+
+    @Override
+    public boolean isDeterministic(){
+        return true;
+    }
+}
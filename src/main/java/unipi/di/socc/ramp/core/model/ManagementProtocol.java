@@ -1,12 +1,31 @@
 package unipi.di.socc.ramp.core.model;
 
+import java.util.AbstractList;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
+/**
+ * management protocol of a node, whose maps and lists (as given by the getters) can be edited in place
+    * each edit increases the version of the protocol, as the tables compiled from it are to be built again 
+      after any edit (see CompiledTopology.isUpToDate)
+    * protocols are not to be edited while the application is being analysed
+ */
 public class ManagementProtocol {
+
+    //number of edits of all the management protocols, telling at once that no protocol was edited
+    private static final AtomicLong edits = new AtomicLong();
+
+    //number of edits of the protocol
+    private final AtomicLong version;
     
     //transition name -> Transition
     private final Map<String, Transition> transitions;
@@ -36,11 +55,12 @@ public class ManagementProtocol {
         if(initialState.isBlank())
             throw new IllegalArgumentException();
 
-        this.transitions = new HashMap<String, Transition>();
-        this.gamma = new HashMap<String, List<String>>();
-        this.phi = new HashMap<String, List<String>>();
-        this.rho = new HashMap<String, List<Requirement>>();
-        this.states = new ArrayList<String>();
+        this.version = new AtomicLong();
+        this.transitions = new VersionedMap<String, Transition>(transition -> transition);
+        this.gamma = new VersionedMap<String, List<String>>(caps -> new VersionedList<>(caps));
+        this.phi = new VersionedMap<String, List<String>>(phiStates -> new VersionedList<>(phiStates));
+        this.rho = new VersionedMap<String, List<Requirement>>(reqs -> new VersionedList<>(reqs));
+        this.states = new VersionedList<String>(new ArrayList<>());
         this.initialState = initialState;
         this.addState(this.initialState);
     }
@@ -77,10 +97,10 @@ public class ManagementProtocol {
         
         ManagementProtocol mp = (ManagementProtocol) obj;
         return 
-            this.gamma.equals(mp.getGamma()) && 
-            this.rho.equals(mp.getRho()) && 
-            this.phi.equals(mp.getPhi()) &&
-            this.transitions.equals(mp.getTransitions()) &&
+            this.gamma.equals(mp.gamma) && 
+            this.rho.equals(mp.rho) && 
+            this.phi.equals(mp.phi) &&
+            this.transitions.equals(mp.transitions) &&
             this.states.equals(mp.states) &&
             this.initialState.equals(mp.initialState)
         ;
@@ -91,6 +111,19 @@ public class ManagementProtocol {
         return Objects.hash(this.transitions, this.rho, this.gamma, this.phi);
     }
 
+    /**
+     * @return the number of edits of all the management protocols so far (if unchanged, no protocol was edited)
+     */
+    public static long getEdits() {
+        return edits.get();
+    }
+    /**
+     * @return the number of edits of the protocol so far, also counting those made in place
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
     public Map<String, Transition> getTransitions() {
         return this.transitions;
     }
@@ -109,4 +142,105 @@ public class ManagementProtocol {
     public String getInitialState(){
         return this.initialState;
     }
+
+    //counts an edit of the protocol (after it is made)
+    private void edited(){
+        this.version.incrementAndGet();
+        edits.incrementAndGet();
+    }
+
+    /**
+     * map of the protocol, counting its edits (the values put in it are wrapped by valueWrapper, so that their
+     * edits are counted too, and the entries cannot be set in place)
+     */
+    private class VersionedMap<K, V> extends AbstractMap<K, V> {
+
+        private final Map<K, V> map;
+        private final UnaryOperator<V> valueWrapper;
+
+        public VersionedMap(UnaryOperator<V> valueWrapper){
+            this.map = new HashMap<>();
+            this.valueWrapper = valueWrapper;
+        }
+
+        @Override
+        public V get(Object key){
+            return this.map.get(key);
+        }
+        @Override
+        public boolean containsKey(Object key){
+            return this.map.containsKey(key);
+        }
+        @Override
+        public int size(){
+            return this.map.size();
+        }
+        @Override
+        public V put(K key, V value){
+            V oldValue = this.map.put(key, value != null ? this.valueWrapper.apply(value) : null);
+            ManagementProtocol.this.edited();
+            return oldValue;
+        }
+        @Override
+        public V remove(Object key){
+            V oldValue = this.map.remove(key);
+            ManagementProtocol.this.edited();
+            return oldValue;
+        }
+        @Override
+        public void clear(){
+            this.map.clear();
+            ManagementProtocol.this.edited();
+        }
+        @Override
+        public Set<K> keySet(){
+            return Collections.unmodifiableSet(this.map.keySet());
+        }
+        @Override
+        public Collection<V> values(){
+            return Collections.unmodifiableCollection(this.map.values());
+        }
+        @Override
+        public Set<Map.Entry<K, V>> entrySet(){
+            return Collections.unmodifiableMap(this.map).entrySet();
+        }
+    }
+
+    //list of the protocol, counting its edits (also those made through its iterators and sublists)
+    private class VersionedList<E> extends AbstractList<E> {
+
+        private final List<E> list;
+
+        public VersionedList(List<E> list){
+            this.list = list;
+        }
+
+        @Override
+        public E get(int index){
+            return this.list.get(index);
+        }
+        @Override
+        public int size(){
+            return this.list.size();
+        }
+        @Override
+        public E set(int index, E element){
+            E oldElement = this.list.set(index, element);
+            ManagementProtocol.this.edited();
+            return oldElement;
+        }
+        @Override
+        public void add(int index, E element){
+            this.list.add(index, element);
+            this.modCount++;
+            ManagementProtocol.this.edited();
+        }
+        @Override
+        public E remove(int index){
+            E oldElement = this.list.remove(index);
+            this.modCount++;
+            ManagementProtocol.this.edited();
+            return oldElement;
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package unipi.di.socc.ramp.core.model;
+
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+/**
+ * strategy choosing which of the active instances that can satisfy a requirement is bound to it, 
+ * to be plugged into an application in place of the implementation of pi given by its pi version
+    * the same strategy is shared by the copies of the application (also by concurrent analyses), hence 
+      strategies must be stateless: any state they need to choose is to be kept in the global state, 
+      with GlobalState.setStrategyData, so that it is copied, compared, encoded and rolled back with it
+ */
+public interface PiStrategy {
+
+    /**
+     * @param app the application whose global state is considered
+     * @param instanceID identifier of the instance with the req about we want a server
+     * @param req requirement that have to be satisfied
+     * @return the chosen instance among those that can satisfy the requirement of the given instance
+     *         (null if there is none)
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @throws InstanceUnknownException
+     */
+    public NodeInstance pi(Application app, String instanceID, Requirement req)
+        throws 
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException;
+
+    /**
+     * @param app the application whose global state is considered
+     * @param instance active instance of the application with the req about we want a server
+     * @param req requirement (not null) that have to be satisfied
+     * @return as pi(app, instanceID, req), which is called by default (strategies can override it not to 
+     *         look up the instance again)
+     * @throws InstanceUnknownException
+     */
+    public default NodeInstance pi(Application app, NodeInstance instance, Requirement req)
+        throws
+            InstanceUnknownException
+    {
+        return this.pi(app, instance.getID(), req);
+    }
+
+    /**
+     * @return true if the strategy always chooses the same instance in the same global state
+     */
+    public boolean isDeterministic();
+}
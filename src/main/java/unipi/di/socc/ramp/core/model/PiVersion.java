@@ -1,6 +1,23 @@
 package unipi.di.socc.ramp.core.model;
 
 public enum PiVersion {
-    GREEDYPI, 
-    RANDOMPI
+    GREEDYPI(null), 
+    RANDOMPI(null), 
+    LEAST_LOADED(new LeastLoadedPi()), 
+    ROUND_ROBIN(new RoundRobinPi());
+
+    //strategy implementing the pi version (null if implemented by the application itself)
+    private final PiStrategy strategy;
+
+    private PiVersion(PiStrategy strategy){
+        this.strategy = strategy;
+    }
+
+    /**
+     * @return the strategy implementing the pi version (null for the greedy and the random pi, which are 
+     *         implemented by the application itself)
+     */
+    public PiStrategy getStrategy() {
+        return strategy;
+    }
 }
@@ -0,0 +1,51 @@
+package unipi.di.socc.ramp.core.model;
+
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+/**
+ * pi choosing, among the instances that can satisfy a requirement, the one following (by id) the last one 
+ * chosen for the same capability (the first one, after the last), which is kept as data of the strategy 
+ * in the global state (see PiVersion.ROUND_ROBIN)
+ */
+class RoundRobinPi implements PiStrategy {
+
+    //prefix of the keys of the data of the strategy, followed by the node and the capability names
+    private static final String KEY_PREFIX = "roundRobin\u0002";
+
+    @Override
+    public NodeInstance pi(Application app, String instanceID, Requirement req)
+        throws 
+            NullPointerException, 
+            IllegalArgumentException, 
+            InstanceUnknownException
+    {
+        NodeInstance instance = app.getGlobalState().getNodeInstanceByID(instanceID);
+        if(req == null)
+            throw new NullPointerException();
+
+        return this.pi(app, instance, req);
+    }
+
+    @Override
+    public NodeInstance pi(Application app, NodeInstance instance, Requirement req){
+        GlobalState globalState = app.getGlobalState();
+        CompiledTopology topology = app.getTopology();
+        int node = topology.getNodeIndex(instance.getNodeType().getName());
+        int reqSlot = node != -1 ? topology.getReqSlot(node, req.getName()) : -1;
+        int boundNode = reqSlot != -1 ? topology.getBoundNode(node, reqSlot) : -1;
+        if(boundNode == -1)
+            return null;
+
+        //the last chosen provider of each capability is kept in the global state
+        String key = KEY_PREFIX + topology.getNodeName(boundNode) + '\u0002' + topology.getCapName(boundNode, topology.getBoundCap(node, reqSlot));
+        NodeInstance provider = globalState.getProviderAfter(topology, node, reqSlot, globalState.getStrategyData(key));
+        if(provider != null)
+            globalState.setStrategyData(key, provider.getID());
+        return provider;
+    }
+
+    @Override
+    public boolean isDeterministic(){
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package unipi.di.socc.ramp.unit.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.analyzer.Analyzer;
+import unipi.di.socc.ramp.core.analyzer.Plan;
+import unipi.di.socc.ramp.core.analyzer.Sequence;
+import unipi.di.socc.ramp.core.analyzer.actions.Action;
+import unipi.di.socc.ramp.core.analyzer.actions.OpEnd;
+import unipi.di.socc.ramp.core.analyzer.actions.OpStart;
+import unipi.di.socc.ramp.core.analyzer.exceptions.UnsupportedAnalysisException;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.exceptions.NodeUnknownException;
+
+public class AnalysisOptionsTest {
+
+    public String thinkingDir;
+    public Application thinking;
+    public String fingerprint;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        this.thinkingDir = System.getProperty("user.dir").concat("/data/thinking-app");
+        this.thinking = Parser.parseApplication(this.thinkingDir + "/thinking.json", this.thinkingDir + "/running-globalstate.json");
+        this.fingerprint = this.thinking.getGlobalState().getFingerprint();
+    }
+
+    @Test
+    public void validPlanTest()
+        throws
+            IOException,
+            UnsupportedAnalysisException
+    {
+        Plan plan = Parser.parsePlan(this.thinkingDir + "/reconfigure-gui-api/refactored-plan.json");
+
+        for(Analyzer analyzer : this.analyzers()){
+            assertTrue(analyzer.planAnalysis(this.thinking, plan, "--valid"), this.describe(analyzer));
+            assertEquals(this.fingerprint, this.thinking.getGlobalState().getFingerprint());
+        }
+    }
+
+    @Test
+    public void failingPlanTest()
+        throws
+            IOException,
+            UnsupportedAnalysisException
+    {
+        //g1 cannot be stopped, whatever the trace
+        Plan plan = Parser.parsePlan(this.thinkingDir + "/undeployment/refactored-plan.json");
+
+        for(Analyzer analyzer : this.analyzers()){
+            assertFalse(analyzer.planAnalysis(this.thinking, plan, "--valid"), this.describe(analyzer));
+            assertEquals(new OpStart("g1", "stop"), analyzer.getReport().getFailedAction(), this.describe(analyzer));
+            assertEquals(this.fingerprint, this.thinking.getGlobalState().getFingerprint());
+        }
+    }
+
+    @Test
+    public void faultBranchingSequenceTest() throws UnsupportedAnalysisException {
+        //stopping a1 and a2 leaves the backend of g1 unsatisfied, and one of the ways of handling such fault
+        //does not allow stopping g1 (hence the sequence is not valid)
+        List<Action> actions = new ArrayList<>();
+        for(String instanceID : List.of("a1", "a2", "g1")){
+            actions.add(new OpStart(instanceID, "stop"));
+            actions.add(new OpEnd(instanceID, "stop"));
+        }
+        Sequence sequence = new Sequence(actions);
+
+        //(sequence analysis executes the actions on the given application, hence each analysis gets a copy)
+        for(Analyzer analyzer : this.analyzers()){
+            assertFalse(analyzer.sequenceAnalysis(this.thinking.clone(), sequence, "--valid"), this.describe(analyzer));
+            assertEquals(new OpStart("g1", "stop"), analyzer.getReport().getFailedAction(), this.describe(analyzer));
+        }
+    }
+
+    //analyzers with each combination of the options of the analysis
+    public List<Analyzer> analyzers(){
+        List<Analyzer> analyzers = new ArrayList<>();
+        for(int options = 0; options < 32; options++){
+            Analyzer analyzer = new Analyzer();
+            analyzer.setPartialOrderReduction((options & 1) != 0);
+            analyzer.setBacktracking((options & 2) != 0);
+            analyzer.setSymmetryReduction((options & 4) != 0);
+            analyzer.setExhaustiveChoices((options & 8) != 0);
+            analyzer.setParallelism((options & 16) != 0 ? 4 : 1);
+            analyzers.add(analyzer);
+        }
+        return analyzers;
+    }
+
+    public String describe(Analyzer analyzer){
+        return
+            "por=" + analyzer.isPartialOrderReduction() +
+            " backtracking=" + analyzer.isBacktracking() +
+            " symmetry=" + analyzer.isSymmetryReduction() +
+            " exhaustive=" + analyzer.isExhaustiveChoices() +
+            " parallelism=" + analyzer.getParallelism();
+    }
+
+}
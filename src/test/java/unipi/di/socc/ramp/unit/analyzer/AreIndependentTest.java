@@ -0,0 +1,153 @@
+package unipi.di.socc.ramp.unit.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.core.analyzer.Analyzer;
+import unipi.di.socc.ramp.core.analyzer.IndependenceRelation;
+import unipi.di.socc.ramp.core.analyzer.Plan;
+import unipi.di.socc.ramp.core.analyzer.actions.Action;
+import unipi.di.socc.ramp.core.analyzer.actions.OpStart;
+import unipi.di.socc.ramp.core.analyzer.actions.ScaleOut;
+import unipi.di.socc.ramp.core.analyzer.exceptions.UnsupportedAnalysisException;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.ManagementProtocol;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeCap;
+import unipi.di.socc.ramp.core.model.NodeInstance;
+import unipi.di.socc.ramp.core.model.NodeReq;
+import unipi.di.socc.ramp.core.model.PiStrategy;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class AreIndependentTest {
+
+    public Application testApp;
+    public Requirement srvReq;
+
+    public Action scaleOutY1;
+    public Action scaleOutX1;
+    public Action stopS1;
+    public Plan plan;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            NodeUnknownException
+    {
+        this.srvReq = new Requirement("srv", RequirementSort.REPLICA_AWARE);
+
+        this.testApp = new Application("testApp", PiVersion.GREEDYPI);
+        this.testApp.addNode(this.createServer());
+        //clients of the servers, whose faults only x can handle
+        this.testApp.addNode(this.createClient("x", true));
+        this.testApp.addNode(this.createClient("y", false));
+
+        this.testApp.addStaticBinding(new NodeReq("x", "srv"), new NodeCap("server", "srv"));
+        this.testApp.addStaticBinding(new NodeReq("y", "srv"), new NodeCap("server", "srv"));
+
+        this.scaleOutY1 = new ScaleOut("y1", "y");
+        this.scaleOutX1 = new ScaleOut("x1", "x");
+        this.stopS1 = new OpStart("s1", "stop");
+        List<Action> actions = List.of(this.scaleOutY1, this.scaleOutX1, this.stopS1);
+        Map<Action, List<Action>> partialOrder = new HashMap<>();
+        for(Action action : actions)
+            partialOrder.put(action, new ArrayList<>());
+        this.plan = new Plan(actions, partialOrder);
+    }
+
+    @Test
+    public void areIndependentTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            UnsupportedAnalysisException
+    {
+        //greedy pi binds x1 and y1 to s1 in any order
+        assertTrue(new IndependenceRelation(this.testApp, this.plan).areIndependent(this.scaleOutY1, this.scaleOutX1));
+        assertFalse(new IndependenceRelation(this.testApp, this.plan).areIndependent(this.scaleOutX1, this.stopS1));
+
+        //the other pi versions bind depending on the bindings made before (and so may strategies)
+        for(PiVersion piVersion : PiVersion.values()){
+            if(piVersion == PiVersion.GREEDYPI)
+                continue;
+            this.testApp.setPiVersion(piVersion);
+            assertFalse(new IndependenceRelation(this.testApp, this.plan).areIndependent(this.scaleOutY1, this.scaleOutX1));
+        }
+        this.testApp.setPiVersion(PiVersion.GREEDYPI);
+        this.testApp.setPiStrategy(new PiStrategy(){
+            @Override
+            public NodeInstance pi(Application app, String instanceID, Requirement req){
+                return null;
+            }
+            @Override
+            public boolean isDeterministic(){
+                return true;
+            }
+        });
+        assertFalse(new IndependenceRelation(this.testApp, this.plan).areIndependent(this.scaleOutY1, this.scaleOutX1));
+        this.testApp.setPiStrategy(null);
+
+        //s1 and s2 are running, and x0 is bound to s1
+        this.testApp.scaleOut("server", "s1");
+        this.testApp.scaleOut("server", "s2");
+        this.testApp.scaleOut("x", "x0");
+
+        //stopping s1 after y1 is bound to it is a fault that y1 cannot handle: with least loaded and round
+        //robin pi, y1 is bound to s1 only if x1 is created first, hence POR must explore both orders
+        for(PiVersion piVersion : List.of(PiVersion.GREEDYPI, PiVersion.LEAST_LOADED, PiVersion.ROUND_ROBIN)){
+            this.testApp.setPiVersion(piVersion);
+            Analyzer analyzer = new Analyzer();
+            assertFalse(analyzer.planAnalysis(this.testApp, this.plan, "--valid"));
+            analyzer = new Analyzer();
+            analyzer.setPartialOrderReduction(true);
+            assertFalse(analyzer.planAnalysis(this.testApp, this.plan, "--valid"));
+        }
+    }
+
+    public Node createServer(){
+        Node server = new Node("server", new ManagementProtocol("running"));
+        server.addCapability("srv");
+        server.addOperation("stop");
+
+        ManagementProtocol serverMP = server.getManProtocol();
+        serverMP.addState("stopped");
+        serverMP.addTransition("running", "stop", "stopped");
+        //gamma: state -> cap offered in that state
+        serverMP.getGamma().get("running").add("srv");
+
+        return server;
+    }
+
+    public Node createClient(String name, boolean handlingFaults){
+        Node client = new Node(name, new ManagementProtocol("working"));
+        client.addRequirement(this.srvReq);
+
+        ManagementProtocol clientMP = client.getManProtocol();
+        clientMP.addState("damaged");
+        //rho: state -> needed req in that state
+        clientMP.getRho().get("working").add(this.srvReq);
+        //phi: state -> fault handling states
+        if(handlingFaults)
+            clientMP.getPhi().get("working").add("damaged");
+
+        return client;
+    }
+
+}
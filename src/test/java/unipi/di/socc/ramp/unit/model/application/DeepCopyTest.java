@@ -1,5 +1,8 @@
 package unipi.di.socc.ramp.unit.model.application;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -8,6 +11,10 @@ import org.junit.jupiter.api.Test;
 
 import unipi.di.socc.ramp.cli.parser.Parser;
 import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.ManagementProtocol;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeCap;
+import unipi.di.socc.ramp.core.model.NodeReq;
 import unipi.di.socc.ramp.core.model.exceptions.NodeUnknownException;
 
 public class DeepCopyTest {
@@ -28,6 +35,28 @@ public class DeepCopyTest {
 
         assertTrue(thinking.equals(thinkingClone));
 
+        //the nodes and the binding function of the copy cannot be changed in place
+        Node newNode = new Node("newNode", new ManagementProtocol("state"));
+        assertThrows(UnsupportedOperationException.class, () -> thinkingClone.getNodes().put("newNode", newNode));
+        assertThrows(UnsupportedOperationException.class, () -> thinkingClone.getBindingFunction().clear());
+
+        //adding nodes and static bindings to the copy does not change the original application
+        int nodes = thinking.getNodes().size();
+        int staticBindings = thinking.getBindingFunction().size();
+        thinkingClone.addNode(newNode);
+        thinkingClone.addStaticBinding(new NodeReq("newNode", "backend"), new NodeCap("api", "endpoint"));
+        assertEquals(nodes, thinking.getNodes().size());
+        assertEquals(staticBindings, thinking.getBindingFunction().size());
+        assertFalse(thinking.getNodes().containsKey("newNode"));
+        assertEquals(-1, thinking.getTopology().getNodeIndex("newNode"));
+        assertTrue(thinkingClone.getTopology().getNodeIndex("newNode") != -1);
+
+        //and vice versa
+        Application otherClone = thinking.clone();
+        thinking.addNode(new Node("otherNode", new ManagementProtocol("state")));
+        assertFalse(otherClone.getNodes().containsKey("otherNode"));
+        assertFalse(thinkingClone.getNodes().containsKey("otherNode"));
+        assertEquals(nodes, otherClone.getNodes().size());
     }
 
 
@@ -0,0 +1,116 @@
+package unipi.di.socc.ramp.unit.model.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.CompiledTopology;
+import unipi.di.socc.ramp.core.model.ManagementProtocol;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeInstance;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class GetTopologyTest {
+
+    public Application thinking;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+    }
+
+    @Test
+    public void getTopologyTest(){
+        CompiledTopology topology = this.thinking.getTopology();
+
+        int gui = topology.getNodeIndex("gui");
+        int api = topology.getNodeIndex("api");
+        assertEquals("gui", topology.getNodeName(gui));
+        assertEquals(-1, topology.getNodeIndex("unknown"));
+
+        //binding function: gui's backend is bound to api's endpoint
+        int backend = topology.getReqSlot(gui, "backend");
+        assertEquals(api, topology.getBoundNode(gui, backend));
+        assertEquals(-1, topology.getReqSlot(gui, "unknown"));
+
+        //rho and gamma: api needs data and offers endpoint only when running
+        int running = topology.getStateIndex(api, "running");
+        int available = topology.getStateIndex(api, "available");
+        int data = topology.getReqSlot(api, "data");
+        assertTrue(topology.isNeeded(api, running, data));
+        assertFalse(topology.isNeeded(api, available, data));
+        assertTrue(topology.isOffered(api, running, topology.getBoundCap(gui, backend)));
+        assertFalse(topology.isOffered(api, available, topology.getBoundCap(gui, backend)));
+
+        //a1 is a running api, hence it can serve the backend of gui, but not its host
+        assertTrue(topology.canServe(this.thinking.getGlobalState().getActiveInstances().get("a1"), gui, backend));
+        assertFalse(topology.canServe(this.thinking.getGlobalState().getActiveInstances().get("a1"), gui, topology.getReqSlot(gui, "host")));
+
+        //management protocols: a1 (running) can be stopped, but not installed, and its data fault is handled by going available
+        NodeInstance a1 = this.thinking.getGlobalState().getActiveInstances().get("a1");
+        assertEquals(a1.getTransitionByOp("stop"), topology.getTransition(a1, "stop"));
+        assertNull(topology.getTransition(a1, "install"));
+        assertNull(topology.getEndState(a1));
+        assertEquals("available", topology.getFaultHandlingState(a1, new Requirement("data", RequirementSort.REPLICA_AWARE)));
+
+        //clones share the tables, which are built again when the static topology changes
+        assertSame(topology, this.thinking.clone().getTopology());
+        this.thinking.addNode(new Node("newNode", new ManagementProtocol("state")));
+        assertNotSame(topology, this.thinking.getTopology());
+        assertTrue(this.thinking.getTopology().getNodeIndex("newNode") != -1);
+
+        //reading the management protocols does not build them again
+        topology = this.thinking.getTopology();
+        ManagementProtocol apiMP = this.thinking.getNodes().get("api").getManProtocol();
+        long version = apiMP.getVersion();
+        apiMP.getRho().get("running").size();
+        apiMP.getGamma();
+        apiMP.getTransitions().values().iterator().next();
+        apiMP.getStates();
+        assertEquals(version, apiMP.getVersion());
+        assertSame(topology, this.thinking.getTopology());
+
+        //(and when a management protocol is edited in place)
+        this.thinking.getNodes().get("api").getManProtocol().addTransition("running", "restart", "running");
+        assertNotSame(topology, this.thinking.getTopology());
+        assertEquals(a1.getTransitionByOp("restart"), this.thinking.getTopology().getTransition(a1, "restart"));
+        topology = this.thinking.getTopology();
+        this.thinking.getNodes().get("api").getManProtocol().getPhi().get("running").add(0, "stopped");
+        assertNotSame(topology, this.thinking.getTopology());
+        assertEquals("stopped", this.thinking.getTopology().getFaultHandlingState(a1, new Requirement("data", RequirementSort.REPLICA_AWARE)));
+
+        //also through a map obtained before the tables were last built
+        Map<String, List<String>> apiPhi = apiMP.getPhi();
+        topology = this.thinking.getTopology();
+        apiPhi.get("running").remove("stopped");
+        assertNotSame(topology, this.thinking.getTopology());
+        assertEquals("available", this.thinking.getTopology().getFaultHandlingState(a1, new Requirement("data", RequirementSort.REPLICA_AWARE)));
+        topology = this.thinking.getTopology();
+        apiPhi.get("running").iterator().next();
+        assertSame(topology, this.thinking.getTopology());
+    }
+
+}
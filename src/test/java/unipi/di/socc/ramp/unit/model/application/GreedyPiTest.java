@@ -121,6 +121,11 @@ public class GreedyPiTest {
         
         //greedyPi returns the first instance in the list (thus the first instance that can satisfy needyReq)
         assertEquals(capableInstances.get(0), this.testApp.pi("needyInstance", this.needyReq));
+
+        //the capable instances are sorted by id, hence greedyPi always returns serverA
+        assertEquals("serverA", this.testApp.pi("needyInstance", this.needyReq).getID());
+        this.testApp.getGlobalState().getActiveInstances().remove("serverA");
+        assertEquals("serverB", this.testApp.pi("needyInstance", this.needyReq).getID());
     }
 
 }
@@ -0,0 +1,79 @@
+package unipi.di.socc.ramp.unit.model.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class LeastLoadedPiTest {
+
+    public Application thinking;
+    public Requirement backend;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.thinking.setPiVersion(PiVersion.LEAST_LOADED);
+        this.backend = new Requirement("backend", RequirementSort.REPLICA_UNAWARE);
+    }
+
+    @Test
+    public void leastLoadedPiTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException,
+            OperationNotAvailableException
+    {
+        assertTrue(this.thinking.isPiDeterministic());
+        GlobalState gs = this.thinking.getGlobalState();
+
+        //a1 serves the backend of g1, whilst a2 serves nothing
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+
+        gs.startTrail();
+        int mark = gs.mark();
+
+        //binding the backend of g1 to a2 moves the load from a1 to a2
+        gs.addRuntimeBinding("g1", this.backend, "a2");
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+
+        //a1 does not offer its endpoint while stopping
+        this.thinking.opStart("a1", "stop");
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+
+        //back to the starting global state
+        gs.rollback(mark);
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+
+        //loads also count the runtime bindings given directly
+        gs.getRuntimeBindings().remove("g1");
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+
+        //nothing can serve the data of an api without a mongo
+        gs.getActiveInstances().remove("d1");
+        assertNull(this.thinking.pi("a1", new Requirement("data", RequirementSort.REPLICA_AWARE)));
+    }
+
+}
@@ -0,0 +1,70 @@
+package unipi.di.socc.ramp.unit.model.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class RoundRobinPiTest {
+
+    public Application thinking;
+    public Requirement backend;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.thinking.setPiVersion(PiVersion.ROUND_ROBIN);
+        this.backend = new Requirement("backend", RequirementSort.REPLICA_UNAWARE);
+    }
+
+    @Test
+    public void roundRobinPiTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException
+    {
+        assertTrue(this.thinking.isPiDeterministic());
+        GlobalState gs = this.thinking.getGlobalState();
+        String fingerprint = gs.getFingerprint();
+
+        gs.startTrail();
+        int mark = gs.mark();
+
+        //the providers of the endpoint of api are chosen in turn (by id)
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+        assertNotEquals(fingerprint, gs.getFingerprint());
+
+        //a copy of the global state continues from the same provider
+        assertEquals("a1", this.thinking.clone().pi("g1", this.backend).getID());
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+
+        //back to the starting global state
+        gs.rollback(mark);
+        assertEquals(fingerprint, gs.getFingerprint());
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+    }
+
+}
@@ -104,6 +104,20 @@ public class ScaleInTest {
         assertNull(this.testApp.getGlobalState().getRuntimeBindings().get("serverID"));
         assertNull(this.testApp.getGlobalState().getActiveInstances().get("needyID"));
         assertNull(this.testApp.getGlobalState().getRuntimeBindings().get("needyID"));
+
+        //-- autodestroy test, outside the killed containment tree --
+        this.testApp.scaleOut("server", "serverID");
+        this.testApp.scaleOutC("needy", "needyID", "serverID");
+        this.testApp.scaleOut("server", "otherServerID");
+        //serverID is removed without killing needyID, hence needyID is broken
+        this.testApp.getGlobalState().removeAllRuntimeBindingsBothWays("serverID");
+        this.testApp.getGlobalState().removeInstance("serverID");
+        assertTrue(this.testApp.getGlobalState().isBrokenInstance("needyID"));
+        //killing otherServerID (which contains nothing) also kills needyID
+        this.testApp.scaleIn("otherServerID");
+        assertNull(this.testApp.getGlobalState().getActiveInstances().get("otherServerID"));
+        assertNull(this.testApp.getGlobalState().getActiveInstances().get("needyID"));
+        assertTrue(this.testApp.getGlobalState().getActiveInstances().isEmpty());
     }
 
 
@@ -0,0 +1,77 @@
+package unipi.di.socc.ramp.unit.model.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.Chooser;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class SetChooserTest {
+
+    public Application thinking;
+    public Requirement backend;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.backend = new Requirement("backend", RequirementSort.REPLICA_UNAWARE);
+    }
+
+    @Test
+    public void setChooserTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException,
+            OperationNotAvailableException
+    {
+        //greedy pi chooses a1
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+
+        //a chooser taking the last alternative is asked to choose between a1 and a2
+        List<Integer> asked = new ArrayList<>();
+        Chooser lastAlternative = new Chooser(){
+            @Override
+            public int choose(int alternatives){
+                asked.add(alternatives);
+                return alternatives - 1;
+            }
+        };
+        this.thinking.setChooser(lastAlternative);
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+        assertEquals(List.of(2), asked);
+        //copies of the application go back to pi
+        assertNull(this.thinking.clone().getChooser());
+        assertEquals("a1", this.thinking.clone().pi("g1", this.backend).getID());
+
+        //no choice is asked if there is a single alternative
+        this.thinking.opStart("a1", "stop");
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+        assertEquals(List.of(2), asked);
+
+        //back to greedy pi
+        this.thinking.setChooser(null);
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+    }
+
+}
@@ -0,0 +1,139 @@
+package unipi.di.socc.ramp.unit.model.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.NodeInstance;
+import unipi.di.socc.ramp.core.model.PiStrategy;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class SetPiStrategyTest {
+
+    public Application thinking;
+    public Requirement backend;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.backend = new Requirement("backend", RequirementSort.REPLICA_UNAWARE);
+    }
+
+    @Test
+    public void setPiStrategyTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException
+    {
+        //greedy pi chooses a1
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+
+        //a (non deterministic) strategy choosing the last capable instance is plugged in its place
+        this.thinking.setPiStrategy(new PiStrategy(){
+            @Override
+            public NodeInstance pi(Application app, String instanceID, Requirement req)
+                throws
+                    NullPointerException,
+                    IllegalArgumentException,
+                    InstanceUnknownException
+            {
+                List<NodeInstance> capableInstances = app.getGlobalState().getCapableInstances(instanceID, req);
+                return !capableInstances.isEmpty() ? capableInstances.get(capableInstances.size() - 1) : null;
+            }
+            @Override
+            public boolean isDeterministic(){
+                return false;
+            }
+        });
+        assertFalse(this.thinking.isPiDeterministic());
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+        //copies of the application use the same strategy
+        assertEquals("a2", this.thinking.clone().pi("g1", this.backend).getID());
+
+        //back to greedy pi
+        this.thinking.setPiStrategy(null);
+        assertTrue(this.thinking.isPiDeterministic());
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+    }
+
+    @Test
+    public void strategyDataTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException
+    {
+        //the least loaded and round robin pi versions are implemented by (deterministic) strategies
+        assertTrue(PiVersion.LEAST_LOADED.getStrategy().isDeterministic());
+        assertTrue(PiVersion.ROUND_ROBIN.getStrategy().isDeterministic());
+
+        //a strategy choosing the capable instances backwards, starting again from the last chosen one, which 
+        //it keeps in the global state
+        this.thinking.setPiStrategy(new PiStrategy(){
+            @Override
+            public NodeInstance pi(Application app, String instanceID, Requirement req)
+                throws
+                    NullPointerException,
+                    IllegalArgumentException,
+                    InstanceUnknownException
+            {
+                List<NodeInstance> capableInstances = app.getGlobalState().getCapableInstances(instanceID, req);
+                if(capableInstances.isEmpty())
+                    return null;
+
+                String lastID = app.getGlobalState().getStrategyData("backwards");
+                int chosen = capableInstances.size() - 1;
+                for(int i = 1; i < capableInstances.size(); i++){
+                    if(capableInstances.get(i).getID().equals(lastID))
+                        chosen = i - 1;
+                }
+                app.getGlobalState().setStrategyData("backwards", capableInstances.get(chosen).getID());
+                return capableInstances.get(chosen);
+            }
+            @Override
+            public boolean isDeterministic(){
+                return true;
+            }
+        });
+        GlobalState gs = this.thinking.getGlobalState();
+        String fingerprint = gs.getFingerprint();
+
+        gs.startTrail();
+        int mark = gs.mark();
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+        assertNotEquals(fingerprint, gs.getFingerprint());
+
+        //a copy of the global state continues from the same instance
+        assertEquals("a1", this.thinking.clone().pi("g1", this.backend).getID());
+        assertEquals("a1", this.thinking.pi("g1", this.backend).getID());
+
+        //back to the starting global state
+        gs.rollback(mark);
+        assertEquals(fingerprint, gs.getFingerprint());
+        assertEquals("a2", this.thinking.pi("g1", this.backend).getID());
+    }
+
+}
@@ -0,0 +1,80 @@
+package unipi.di.socc.ramp.unit.model.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.analyzer.actions.OpEnd;
+import unipi.di.socc.ramp.core.analyzer.actions.OpStart;
+import unipi.di.socc.ramp.core.analyzer.actions.ScaleIn;
+import unipi.di.socc.ramp.core.analyzer.actions.ScaleOutC;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.ExecutionOutcome;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class TryExecuteTest {
+
+    public Application thinking;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+    }
+
+    @Test
+    public void tryExecuteTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException
+    {
+        GlobalState gs = this.thinking.getGlobalState();
+        String startingFingerprint = gs.getFingerprint();
+
+        //actions that cannot be executed leave the global state unchanged
+        assertEquals(ExecutionOutcome.UNKNOWN_INSTANCE, this.thinking.tryExecute(new OpStart("unknown", "stop")));
+        assertEquals(ExecutionOutcome.NOT_APPLICABLE, this.thinking.tryExecute(new OpStart("a1", "unknown")));
+        assertThrows(OperationNotAvailableException.class, () -> this.thinking.execute(new OpStart("a1", "unknown")));
+        //a1 is not in a transient state
+        assertEquals(ExecutionOutcome.NOT_APPLICABLE, this.thinking.tryExecute(new OpEnd("a1", "stop")));
+        //d1 is not a maven
+        assertEquals(ExecutionOutcome.NOT_APPLICABLE, this.thinking.tryExecute(new ScaleOutC("a3", "api", "d1")));
+        assertEquals(startingFingerprint, gs.getFingerprint());
+
+        //a1 starts stopping and a3 is created in m2
+        assertEquals(ExecutionOutcome.APPLIED, this.thinking.tryExecute(new OpStart("a1", "stop")));
+        assertEquals("runningstopavailable", gs.getActiveInstances().get("a1").getCurrentState());
+        assertEquals(ExecutionOutcome.APPLIED, this.thinking.tryExecute(new ScaleOutC("a3", "api", "m2")));
+        assertTrue(gs.getActiveInstances().containsKey("a3"));
+
+        //m1 is removed (without killing a1), hence a1 is broken and it fails to stop
+        gs.removeAllRuntimeBindingsBothWays("m1");
+        gs.removeInstance("m1");
+        String brokenFingerprint = gs.getFingerprint();
+        assertEquals(ExecutionOutcome.FAULTED, this.thinking.tryExecute(new OpEnd("a1", "stop")));
+        assertThrows(FailedOperationException.class, () -> this.thinking.execute(new OpEnd("a1", "stop")));
+        assertEquals(ExecutionOutcome.UNKNOWN_INSTANCE, this.thinking.tryExecute(new ScaleIn("m1")));
+        assertEquals(brokenFingerprint, gs.getFingerprint());
+
+        //killing a1 is instead possible
+        assertEquals(ExecutionOutcome.APPLIED, this.thinking.tryExecute(new ScaleIn("a1")));
+        assertTrue(gs.getBrokenInstances().isEmpty());
+    }
+
+}
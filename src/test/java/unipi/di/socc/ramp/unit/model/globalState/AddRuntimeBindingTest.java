@@ -0,0 +1,79 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.RuntimeBinding;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class AddRuntimeBindingTest {
+
+    public Application thinking;
+    public Requirement backend;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.backend = new Requirement("backend", RequirementSort.REPLICA_UNAWARE);
+    }
+
+    @Test
+    public void addRuntimeBindingTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException
+    {
+        GlobalState gs = this.thinking.getGlobalState();
+        assertThrows(InstanceUnknownException.class, () -> gs.addRuntimeBinding("g1", this.backend, "unknown"));
+        //data is not a requirement of gui
+        assertThrows(IllegalArgumentException.class, () -> gs.addRuntimeBinding("g1", new Requirement("data", RequirementSort.REPLICA_AWARE), "d1"));
+
+        //g1 is hosted by n1 and its backend is bound to a1
+        assertEquals(2, gs.getRuntimeBindings().get("g1").size());
+        assertEquals("a1", this.getBackendServer(gs));
+
+        gs.startTrail();
+        int mark = gs.mark();
+
+        //binding the backend of g1 to a2 replaces its binding to a1
+        gs.addRuntimeBinding("g1", this.backend, "a2");
+        assertEquals(2, gs.getRuntimeBindings().get("g1").size());
+        assertEquals("a2", this.getBackendServer(gs));
+        assertEquals("a2", this.getBackendServer(gs.clone(this.thinking)));
+
+        //back to the starting global state
+        gs.rollback(mark);
+        assertEquals(2, gs.getRuntimeBindings().get("g1").size());
+        assertEquals("a1", this.getBackendServer(gs));
+    }
+
+    public String getBackendServer(GlobalState gs){
+        String serverID = null;
+        for(RuntimeBinding rb : gs.getRuntimeBindings().get("g1")){
+            if(rb.getReq().getName().equals("backend"))
+                serverID = rb.getNodeInstanceID();
+        }
+        return serverID;
+    }
+
+}
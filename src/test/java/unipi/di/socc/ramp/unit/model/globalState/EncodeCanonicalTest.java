@@ -0,0 +1,144 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.Chooser;
+import unipi.di.socc.ramp.core.model.EncodedGlobalState;
+import unipi.di.socc.ramp.core.model.GlobalStateEncoder;
+import unipi.di.socc.ramp.core.model.ManagementProtocol;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeCap;
+import unipi.di.socc.ramp.core.model.NodeReq;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class EncodeCanonicalTest {
+
+    public Application testApp;
+    public Requirement srvReq;
+    public GlobalStateEncoder encoder;
+    public Set<String> fixedIDs;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            NodeUnknownException
+    {
+        this.srvReq = new Requirement("srv", RequirementSort.REPLICA_UNAWARE);
+
+        this.testApp = new Application("testApp", PiVersion.GREEDYPI);
+        this.testApp.addNode(this.createServer());
+        this.testApp.addNode(this.createClient());
+        this.testApp.addStaticBinding(new NodeReq("client", "srv"), new NodeCap("server", "srv"));
+
+        this.encoder = new GlobalStateEncoder();
+        //c1 is the instance referred by the analysed action (scaleOut of c1)
+        this.fixedIDs = Set.of("c1");
+    }
+
+    @Test
+    public void encodeCanonicalTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            OperationNotAvailableException,
+            FailedOperationException
+    {
+        this.testApp.scaleOut("server", "s1");
+        this.testApp.scaleOut("server", "s2");
+
+        //s1 in b and s2 in p, or s1 in p and s2 in b, are the same up to renaming s1 and s2
+        Application bp = this.testApp.clone();
+        bp.opStart("s2", "switch");
+        bp.opEnd("s2", "switch");
+        Application pb = this.testApp.clone();
+        pb.opStart("s1", "switch");
+        pb.opEnd("s1", "switch");
+        assertNotEquals(bp.getGlobalState().encode(this.encoder), pb.getGlobalState().encode(this.encoder));
+        assertEquals(
+            bp.getGlobalState().encodeCanonical(this.encoder, this.fixedIDs),
+            pb.getGlobalState().encodeCanonical(this.encoder, this.fixedIDs)
+        );
+
+        //greedy pi binds c1 to s1 (the least id), which does not survive renaming: c1 is bound to the
+        //server in b in a successor, to the server in p in the other one
+        assertNotEquals(this.successors(bp, false), this.successors(pb, false));
+
+        //the successors given by all the choices are instead the same up to renaming
+        assertEquals(2, this.successors(bp, true).size());
+        assertEquals(this.successors(bp, true), this.successors(pb, true));
+    }
+
+    //canonical encodings of the global states reached by scaling out c1 from the one of app, with pi or
+    //with each of the choices of the instance to bind
+    public Set<EncodedGlobalState> successors(Application app, boolean allChoices)
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException
+    {
+        Set<EncodedGlobalState> successors = new HashSet<>();
+        int choices = allChoices ? 2 : 1;
+        for(int choice = 0; choice < choices; choice++){
+            final int chosen = choice;
+            Application successor = app.clone();
+            if(allChoices){
+                successor.setChooser(new Chooser(){
+                    @Override
+                    public int choose(int alternatives){
+                        return chosen;
+                    }
+                });
+            }
+            successor.scaleOut("client", "c1");
+            successors.add(successor.getGlobalState().encodeCanonical(this.encoder, this.fixedIDs));
+        }
+        return successors;
+    }
+
+    public Node createServer(){
+        Node server = new Node("server", new ManagementProtocol("b"));
+        server.addCapability("srv");
+        server.addOperation("switch");
+
+        ManagementProtocol serverMP = server.getManProtocol();
+        serverMP.addState("p");
+        serverMP.addTransition("b", "switch", "p");
+        //gamma: state -> cap offered in that state
+        serverMP.getGamma().get("b").add("srv");
+        serverMP.getGamma().get("p").add("srv");
+
+        return server;
+    }
+
+    public Node createClient(){
+        Node client = new Node("client", new ManagementProtocol("working"));
+        client.addRequirement(this.srvReq);
+
+        ManagementProtocol clientMP = client.getManProtocol();
+        //rho: state -> needed req in that state
+        clientMP.getRho().get("working").add(this.srvReq);
+
+        return client;
+    }
+
+}
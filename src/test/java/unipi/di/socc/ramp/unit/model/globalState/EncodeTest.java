@@ -0,0 +1,84 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.GlobalStateEncoder;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class EncodeTest {
+
+    public Application thinking;
+    public GlobalStateEncoder encoder;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.encoder = new GlobalStateEncoder();
+    }
+
+    @Test
+    public void encodeTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            OperationNotAvailableException
+    {
+        assertThrows(NullPointerException.class, () -> this.thinking.getGlobalState().encode(null));
+        assertThrows(NullPointerException.class, () -> this.thinking.getGlobalState().encodeCanonical(this.encoder, null));
+
+        Application thinkingClone = this.thinking.clone();
+        assertEquals(this.thinking.getGlobalState().encode(this.encoder), thinkingClone.getGlobalState().encode(this.encoder));
+        assertEquals(
+            this.thinking.getGlobalState().encode(this.encoder).hashCode(),
+            thinkingClone.getGlobalState().encode(this.encoder).hashCode()
+        );
+
+        //different current state
+        this.thinking.opStart("a1", "stop");
+        assertNotEquals(this.thinking.getGlobalState().encode(this.encoder), thinkingClone.getGlobalState().encode(this.encoder));
+
+        //back to the same global state (with the runtime bindings of a1 created again)
+        thinkingClone.opStart("a1", "stop");
+        assertEquals(this.thinking.getGlobalState().encode(this.encoder), thinkingClone.getGlobalState().encode(this.encoder));
+
+        //names are encoded as ints, an instance (with its node type, state and number of runtime bindings) taking 4 of them
+        assertTrue(this.thinking.getGlobalState().encode(this.encoder).size() >= 4 * this.thinking.getGlobalState().getActiveInstances().size());
+
+        //the replicas a1 and a2 of api are interchangeable only when in the same state
+        Set<String> fixedIDs = new HashSet<>();
+        assertNotEquals(
+            this.thinking.getGlobalState().encodeCanonical(this.encoder, fixedIDs),
+            this.thinking.clone().getGlobalState().encode(this.encoder)
+        );
+        assertEquals(
+            this.thinking.getGlobalState().encodeCanonical(this.encoder, fixedIDs),
+            this.thinking.clone().getGlobalState().encodeCanonical(this.encoder, fixedIDs)
+        );
+    }
+
+}
@@ -0,0 +1,74 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class GetBrokenInstancesTest {
+
+    public Application thinking;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+    }
+
+    @Test
+    public void getBrokenInstancesTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException,
+            OperationNotAvailableException
+    {
+        GlobalState gs = this.thinking.getGlobalState();
+        assertTrue(gs.getBrokenInstances().isEmpty());
+        assertTrue(gs.getPendingFaults().isEmpty());
+
+        gs.startTrail();
+        int mark = gs.mark();
+
+        //m1 is removed (without killing a1), hence a1 is broken
+        gs.removeAllRuntimeBindingsBothWays("m1");
+        gs.removeInstance("m1");
+        assertEquals(1, gs.getBrokenInstances().size());
+        assertEquals("a1", gs.getBrokenInstances().get(0).getID());
+        assertTrue(gs.getPendingFaults().isEmpty());
+
+        //d1 stops offering its db, hence both a1 and a2 miss their data
+        this.thinking.opStart("d1", "stop");
+        assertEquals(2, gs.getPendingFaults().size());
+        //a copy of the global state has the same faults
+        assertEquals(new HashSet<>(gs.getPendingFaults()), new HashSet<>(gs.clone(this.thinking).getPendingFaults()));
+
+        //a2 stops, hence it does not need its data anymore
+        this.thinking.opStart("a2", "stop");
+        assertEquals(1, gs.getPendingFaults().size());
+        assertEquals("a1", gs.getPendingFaults().get(0).getNodeInstanceID());
+
+        //back to the starting global state
+        gs.rollback(mark);
+        assertTrue(gs.getBrokenInstances().isEmpty());
+        assertTrue(gs.getPendingFaults().isEmpty());
+    }
+
+}
@@ -0,0 +1,137 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.ManagementProtocol;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeCap;
+import unipi.di.socc.ramp.core.model.NodeReq;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class GetCanonicalFingerprintTest {
+
+    public Application testAppA;
+    public Application testAppB;
+    public Requirement req;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            NodeUnknownException
+    {
+        this.req = new Requirement("req", RequirementSort.REPLICA_UNAWARE);
+
+        this.testAppA = this.createApp();
+        this.testAppB = this.createApp();
+    }
+
+    public Application createApp() throws NullPointerException, NodeUnknownException{
+        Application app = new Application("testApp", PiVersion.GREEDYPI);
+        app.addNode(this.createNeedy());
+        app.addNode(this.createServer());
+
+        app.addStaticBinding(new NodeReq("needy", "req"), new NodeCap("server", "cap"));
+        return app;
+    }
+
+    @Test
+    public void getCanonicalFingerprintTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            OperationNotAvailableException
+    {
+        Set<String> fixedIDs = new HashSet<>();
+        fixedIDs.add("needyInstance");
+
+        assertThrows(NullPointerException.class, () -> this.testAppA.getGlobalState().getCanonicalFingerprint(null));
+
+        //replicas of server named differently (and created in a different order)
+        this.testAppA.scaleOut("server", "s1");
+        this.testAppA.scaleOut("server", "s2");
+        this.testAppB.scaleOut("server", "s4");
+        this.testAppB.scaleOut("server", "s3");
+
+        assertNotEquals(this.testAppA.getGlobalState().getFingerprint(), this.testAppB.getGlobalState().getFingerprint());
+        assertEquals(
+            this.testAppA.getGlobalState().getCanonicalFingerprint(fixedIDs),
+            this.testAppB.getGlobalState().getCanonicalFingerprint(fixedIDs)
+        );
+
+        //the (fixed) needy instance is bound to a replica of server in both global states
+        this.testAppA.scaleOut("needy", "needyInstance");
+        this.testAppB.scaleOut("needy", "needyInstance");
+        assertEquals(
+            this.testAppA.getGlobalState().getCanonicalFingerprint(fixedIDs),
+            this.testAppB.getGlobalState().getCanonicalFingerprint(fixedIDs)
+        );
+
+        //the names of fixed instances matter
+        fixedIDs.add("s1");
+        assertNotEquals(
+            this.testAppA.getGlobalState().getCanonicalFingerprint(fixedIDs),
+            this.testAppB.getGlobalState().getCanonicalFingerprint(fixedIDs)
+        );
+        fixedIDs.remove("s1");
+
+        //the replicas of server are no more interchangeable if they are in different states
+        this.testAppA.opStart(this.getServerID(this.testAppA), "stop");
+        assertNotEquals(
+            this.testAppA.getGlobalState().getCanonicalFingerprint(fixedIDs),
+            this.testAppB.getGlobalState().getCanonicalFingerprint(fixedIDs)
+        );
+        this.testAppB.opStart(this.getServerID(this.testAppB), "stop");
+        assertEquals(
+            this.testAppA.getGlobalState().getCanonicalFingerprint(fixedIDs),
+            this.testAppB.getGlobalState().getCanonicalFingerprint(fixedIDs)
+        );
+    }
+
+    //id of the server instance used by the needy instance
+    public String getServerID(Application app){
+        return app.getGlobalState().getRuntimeBindings().get("needyInstance").get(0).getNodeInstanceID();
+    }
+
+    public Node createNeedy(){
+        Node needy = new Node("needy", new ManagementProtocol("state"));
+        needy.addRequirement(this.req);
+
+        //rho: state -> needed req in that state
+        needy.getManProtocol().getRho().get("state").add(this.req);
+
+        return needy;
+    }
+    public Node createServer(){
+        Node server = new Node("server", new ManagementProtocol("running"));
+        server.addCapability("cap");
+        server.addOperation("stop");
+
+        ManagementProtocol serverMP = server.getManProtocol();
+        serverMP.addState("stopped");
+        serverMP.addTransition("running", "stop", "stopped");
+
+        //gamma: state -> cap offered in that state
+        serverMP.getGamma().get("running").add("cap");
+
+        return server;
+    }
+
+}
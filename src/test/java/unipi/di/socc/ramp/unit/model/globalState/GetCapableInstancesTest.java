@@ -0,0 +1,90 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.NodeInstance;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class GetCapableInstancesTest {
+
+    public Application thinking;
+    public Requirement backend;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.backend = new Requirement("backend", RequirementSort.REPLICA_UNAWARE);
+    }
+
+    @Test
+    public void getCapableInstancesTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            OperationNotAvailableException,
+            FailedOperationException
+    {
+        assertThrows(InstanceUnknownException.class, () -> this.thinking.getGlobalState().getCapableInstances("unknown", this.backend));
+
+        //both the running apis can serve the backend of g1
+        assertEquals(Set.of("a1", "a2"), this.getCapableIDs());
+
+        //a1 stops offering its endpoint as soon as it starts stopping
+        this.thinking.getGlobalState().startTrail();
+        int mark = this.thinking.getGlobalState().mark();
+        this.thinking.opStart("a1", "stop");
+        assertEquals(Set.of("a2"), this.getCapableIDs());
+
+        //a2 is killed with the maven containing it
+        this.thinking.scaleIn("m2");
+        assertTrue(this.getCapableIDs().isEmpty());
+
+        //back to the starting global state
+        this.thinking.getGlobalState().rollback(mark);
+        assertEquals(Set.of("a1", "a2"), this.getCapableIDs());
+
+        //instances added directly to the active instances are considered as well
+        NodeInstance a3 = new NodeInstance(this.thinking.getNodes().get("api"), "running", "a3");
+        this.thinking.getGlobalState().getActiveInstances().put("a3", a3);
+        assertEquals(Set.of("a1", "a2", "a3"), this.getCapableIDs());
+    }
+
+    public Set<String> getCapableIDs()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException
+    {
+        Set<String> capableIDs = new HashSet<>();
+        for(NodeInstance instance : this.thinking.getGlobalState().getCapableInstances("g1", this.backend))
+            capableIDs.add(instance.getID());
+        return capableIDs;
+    }
+
+}
@@ -0,0 +1,73 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class GetContainedInstancesTest {
+
+    public Application thinking;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+    }
+
+    @Test
+    public void getContainedInstancesTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException
+    {
+        //n1 hosts g1, m1 hosts a1, whilst d1 hosts nothing
+        assertEquals(List.of("g1"), this.thinking.getGlobalState().getContainedInstances("n1"));
+        assertEquals(List.of("a1"), this.thinking.getGlobalState().getContainedInstances("m1"));
+        assertTrue(this.thinking.getGlobalState().getContainedInstances("d1").isEmpty());
+        assertTrue(this.thinking.getGlobalState().getContainedInstances("unknown").isEmpty());
+
+        this.thinking.getGlobalState().startTrail();
+        int mark = this.thinking.getGlobalState().mark();
+
+        //a3 is created in m1
+        this.thinking.scaleOutC("api", "a3", "m1");
+        assertEquals(Set.of("a1", "a3"), new HashSet<>(this.thinking.getGlobalState().getContainedInstances("m1")));
+
+        //killing m1 kills the instances it hosts, and only them
+        this.thinking.scaleIn("m1");
+        assertFalse(this.thinking.getGlobalState().getActiveInstances().containsKey("a1"));
+        assertFalse(this.thinking.getGlobalState().getActiveInstances().containsKey("a3"));
+        assertTrue(this.thinking.getGlobalState().getActiveInstances().containsKey("a2"));
+        assertTrue(this.thinking.getGlobalState().getContainedInstances("m1").isEmpty());
+        assertTrue(this.thinking.getGlobalState().getBrokenInstances().isEmpty());
+
+        //back to the starting global state
+        this.thinking.getGlobalState().rollback(mark);
+        assertEquals(List.of("a1"), this.thinking.getGlobalState().getContainedInstances("m1"));
+    }
+
+}
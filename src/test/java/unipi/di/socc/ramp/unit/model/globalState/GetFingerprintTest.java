@@ -0,0 +1,119 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.ManagementProtocol;
+import unipi.di.socc.ramp.core.model.Node;
+import unipi.di.socc.ramp.core.model.NodeCap;
+import unipi.di.socc.ramp.core.model.NodeReq;
+import unipi.di.socc.ramp.core.model.PiVersion;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class GetFingerprintTest {
+
+    public Application testAppA;
+    public Application testAppB;
+    public Requirement reqA;
+    public Requirement reqB;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            NodeUnknownException
+    {
+        this.reqA = new Requirement("reqA", RequirementSort.REPLICA_UNAWARE);
+        this.reqB = new Requirement("reqB", RequirementSort.REPLICA_UNAWARE);
+
+        this.testAppA = this.createApp();
+        this.testAppB = this.createApp();
+    }
+
+    public Application createApp() throws NullPointerException, NodeUnknownException{
+        Application app = new Application("testApp", PiVersion.GREEDYPI);
+        app.addNode(this.createNeedy());
+        app.addNode(this.createServer("serverA", "capA"));
+        app.addNode(this.createServer("serverB", "capB"));
+
+        app.addStaticBinding(new NodeReq("needy", "reqA"), new NodeCap("serverA", "capA"));
+        app.addStaticBinding(new NodeReq("needy", "reqB"), new NodeCap("serverB", "capB"));
+        return app;
+    }
+
+    @Test
+    public void getFingerprintTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            OperationNotAvailableException
+    {
+        //empty global states
+        assertEquals(this.testAppA.getGlobalState().getFingerprint(), this.testAppB.getGlobalState().getFingerprint());
+
+        //same instances (and bindings) created in a different order
+        this.testAppA.scaleOut("serverA", "serverAInstance");
+        this.testAppA.scaleOut("serverB", "serverBInstance");
+        this.testAppA.scaleOut("needy", "needyInstance");
+
+        this.testAppB.scaleOut("serverB", "serverBInstance");
+        this.testAppB.scaleOut("needy", "needyInstance");
+        this.testAppB.scaleOut("serverA", "serverAInstance");
+        //needyInstance gets reqA satisfied only now (and after reqB)
+        this.testAppB.resolveFault(
+            this.testAppB.getGlobalState().getPendingFaults("needyInstance").get(0)
+        );
+
+        assertEquals(this.testAppA.getGlobalState().getFingerprint(), this.testAppB.getGlobalState().getFingerprint());
+        //a clone has the same fingerprint
+        assertEquals(this.testAppA.getGlobalState().getFingerprint(), this.testAppA.clone().getGlobalState().getFingerprint());
+
+        //different runtime bindings
+        this.testAppB.getGlobalState().removeRuntimeBinding("needyInstance", this.reqA);
+        assertNotEquals(this.testAppA.getGlobalState().getFingerprint(), this.testAppB.getGlobalState().getFingerprint());
+
+        //different current state
+        Application clonedAppA = this.testAppA.clone();
+        this.testAppA.opStart("needyInstance", "op");
+        assertNotEquals(this.testAppA.getGlobalState().getFingerprint(), clonedAppA.getGlobalState().getFingerprint());
+    }
+
+    public Node createNeedy(){
+        Node needy = new Node("needy", new ManagementProtocol("state"));
+        needy.addRequirement(this.reqA);
+        needy.addRequirement(this.reqB);
+        needy.addOperation("op");
+
+        ManagementProtocol needyMP = needy.getManProtocol();
+        needyMP.addTransition("state", "op", "state");
+
+        //rho: state -> needed req in that state
+        needyMP.getRho().get("state").add(this.reqA);
+        needyMP.getRho().get("state").add(this.reqB);
+
+        return needy;
+    }
+    public Node createServer(String name, String cap){
+        Node server = new Node(name, new ManagementProtocol("state"));
+        server.addCapability(cap);
+
+        ManagementProtocol serverMP = server.getManProtocol();
+
+        //gamma: state -> cap offered in that state
+        serverMP.getGamma().get("state").add(cap);
+
+        return server;
+    }
+
+}
@@ -95,6 +95,11 @@ public class GetPendingFaultsTest {
         //needy has 2 pending faults (awReq, unawReq)
         assertTrue(gs.getPendingFaults("needyID").size() == 2);
 
+        //the binding of awReq is back, hence only unawReq is pending
+        gs.addRuntimeBinding("needyID", this.awReq, "serverID");
+        assertTrue(gs.getPendingFaults("needyID").size() == 1);
+        assertEquals(this.unawReq, gs.getPendingFaults("needyID").get(0).getReq());
+
         //TODO more complete test
         //-> pending because no runtime binding
         //-> pending because runtime binding but dead server
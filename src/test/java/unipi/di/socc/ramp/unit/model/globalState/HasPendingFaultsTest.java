@@ -0,0 +1,80 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.Fault;
+import unipi.di.socc.ramp.core.model.GlobalState;
+import unipi.di.socc.ramp.core.model.Requirement;
+import unipi.di.socc.ramp.core.model.RequirementSort;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class HasPendingFaultsTest {
+
+    public Application thinking;
+    public Fault a1Data;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.a1Data = new Fault("a1", new Requirement("data", RequirementSort.REPLICA_AWARE));
+    }
+
+    @Test
+    public void hasPendingFaultsTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            InstanceUnknownException,
+            OperationNotAvailableException
+    {
+        GlobalState gs = this.thinking.getGlobalState();
+        assertThrows(InstanceUnknownException.class, () -> gs.hasPendingFaults("unknown"));
+        assertFalse(gs.hasPendingFaults());
+        assertFalse(gs.hasPendingFaults("a1"));
+        assertFalse(gs.isPendingFault(this.a1Data));
+        assertNull(gs.getBrokenInstance());
+
+        gs.startTrail();
+        int mark = gs.mark();
+
+        //d1 stops offering its db, hence both a1 and a2 miss their data
+        this.thinking.opStart("d1", "stop");
+        assertTrue(gs.hasPendingFaults());
+        assertTrue(gs.hasPendingFaults("a1"));
+        assertTrue(gs.hasPendingFaults("a2"));
+        assertFalse(gs.hasPendingFaults("g1"));
+        assertTrue(gs.isPendingFault(this.a1Data));
+
+        //m1 is removed (without killing a1), hence a1 is broken
+        gs.removeAllRuntimeBindingsBothWays("m1");
+        gs.removeInstance("m1");
+        assertEquals("a1", gs.getBrokenInstance().getID());
+
+        //back to the starting global state
+        gs.rollback(mark);
+        assertFalse(gs.hasPendingFaults());
+        assertFalse(gs.isPendingFault(this.a1Data));
+        assertNull(gs.getBrokenInstance());
+    }
+
+}
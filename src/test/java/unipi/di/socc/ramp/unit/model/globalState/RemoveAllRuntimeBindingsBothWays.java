@@ -83,12 +83,20 @@ public class RemoveAllRuntimeBindingsBothWays {
         assertTrue(this.testApp.getGlobalState().getPendingFaults("instanceB").isEmpty());
 
         //now we remove bindings both ways of instanceA
+        this.testApp.getGlobalState().startTrail();
+        int mark = this.testApp.getGlobalState().mark();
         this.testApp.getGlobalState().removeAllRuntimeBindingsBothWays("instanceA");
         
         //instanceA have no satisfied reqs now
         assertTrue(this.testApp.getGlobalState().getSatisfiedReqs("instanceA").isEmpty());
         //since instanceA was a server for instanceB now even instanceB has no satisfied reqs
         assertTrue(this.testApp.getGlobalState().getSatisfiedReqs("instanceB").isEmpty());
+
+        //back to when instanceA was serving instanceB, whose runtime binding is removed again
+        this.testApp.getGlobalState().rollback(mark);
+        assertTrue(this.testApp.getGlobalState().getSatisfiedReqs("instanceB").size() == 1);
+        this.testApp.getGlobalState().removeAllRuntimeBindingsBothWays("instanceA");
+        assertTrue(this.testApp.getGlobalState().getSatisfiedReqs("instanceB").isEmpty());
     }
 
     public Node createNodeA(){
@@ -0,0 +1,90 @@
+package unipi.di.socc.ramp.unit.model.globalState;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import unipi.di.socc.ramp.cli.parser.Parser;
+import unipi.di.socc.ramp.core.model.Application;
+import unipi.di.socc.ramp.core.model.Fault;
+import unipi.di.socc.ramp.core.model.exceptions.*;
+
+public class RollbackTest {
+
+    public Application thinking;
+    public Application thinkingClone;
+
+    @BeforeEach
+    public void before()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            IOException,
+            NodeUnknownException
+    {
+        String thinkingPath = System.getProperty("user.dir").concat("/data/thinking-app/thinking.json");
+        String thinkingGSPath = System.getProperty("user.dir").concat("/data/thinking-app/running-globalstate.json");
+
+        this.thinking = Parser.parseApplication(thinkingPath, thinkingGSPath);
+        this.thinkingClone = this.thinking.clone();
+    }
+
+    @Test
+    public void rollbackTest()
+        throws
+            NullPointerException,
+            IllegalArgumentException,
+            AlreadyUsedIDException,
+            RuleNotApplicableException,
+            InstanceUnknownException,
+            NodeUnknownException,
+            OperationNotAvailableException,
+            FailedOperationException,
+            FailedFaultHandlingExecption
+    {
+        //changes are not being recorded
+        assertThrows(NullPointerException.class, () -> this.thinking.getGlobalState().mark());
+
+        this.thinking.getGlobalState().startTrail();
+        int start = this.thinking.getGlobalState().mark();
+
+        //a1 stops, hence g1 (using a1 as backend) has a pending fault, which is resolved by using a2
+        this.thinking.opStart("a1", "stop");
+        this.thinking.opEnd("a1", "stop");
+        Fault g1Fault = this.thinking.getGlobalState().getPendingFaults("g1").get(0);
+        this.thinking.resolveFault(g1Fault);
+        assertTrue(this.thinking.getGlobalState().getPendingFaults("g1").isEmpty());
+
+        int mark = this.thinking.getGlobalState().mark();
+
+        //m2 is killed (with a2 it contains), hence g1 has a pending fault again, which is handled
+        this.thinking.scaleIn("m2");
+        assertNull(this.thinking.getGlobalState().getActiveInstances().get("a2"));
+        this.thinking.handleFault(this.thinking.getGlobalState().getPendingFaults("g1").get(0));
+        //a new maven is created
+        this.thinking.scaleOut("maven", "m3");
+        this.thinking.scaleOutC("api", "a3", "m3");
+
+        //back to when only a1 was stopped
+        this.thinking.getGlobalState().rollback(mark);
+        assertTrue(this.thinking.getGlobalState().getActiveInstances().containsKey("a2"));
+        assertFalse(this.thinking.getGlobalState().getActiveInstances().containsKey("m3"));
+        assertTrue(this.thinking.getGlobalState().getPendingFaults("g1").isEmpty());
+
+        //back to the starting global state
+        this.thinking.getGlobalState().rollback(start);
+        assertTrue(this.thinking.equals(this.thinkingClone));
+
+        //changes are no more recorded
+        this.thinking.getGlobalState().stopTrail();
+        this.thinking.scaleIn("d1");
+        assertThrows(NullPointerException.class, () -> this.thinking.getGlobalState().rollback(start));
+    }
+
+}